@@ -1,17 +1,23 @@
 package connect4gui;
 // The javafx gui
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Parent;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcTo;
 import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 import javafx.scene.text.Text;
@@ -19,17 +25,26 @@ import javafx.util.Duration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import connect4game.Connect4EngineSettings;
 import connect4game.Connect4Game;
 
 
 public class Connect4Frame extends Parent {
 
     private final int DISC_SIZE = 80;
+    private final int cols = Connect4Game.DEFAULT_COLS; // Board size
+    private final int rows = Connect4Game.DEFAULT_ROWS;
     
     private Pane discRoot;
+    private Circle[][] discs; // One disc per column and row, hidden if the field is empty
+    private Circle[][] markers; // Winning line markers on top of the discs
+    private TranslateTransition[][] drops; // Drop animation per disc
     private Text statusText1;
     private Text statusText2;
+    private Text[] hintTexts; // Score per column below the board
+    private CheckBox hints;
 
     private Connect4Game game;
 
@@ -39,8 +54,10 @@ public class Connect4Frame extends Parent {
         
         Pane gamePane = new Pane();
         discRoot = new Pane();
+        makeDiscs();
         gamePane.getChildren().add(discRoot);
         gamePane.getChildren().add(makeGrid());
+        gamePane.getChildren().addAll(makeHints());
         gamePane.getChildren().addAll(makeColumns());
         
         GridPane grid = new GridPane();
@@ -57,36 +74,88 @@ public class Connect4Frame extends Parent {
         Button b2 = new Button("Computer vs Computer");
         b2.setOnAction( (e) -> newGame(true,true) );
         Button b3 = new Button("Undo");
-        b3.setOnAction( (e) -> { if (game!=null) game.undo(); } );
+        b3.setOnAction( (e) -> undo() );
+        Button b4 = new Button("Redo");
+        b4.setOnAction( (e) -> redo() );
+        hints = new CheckBox("Hints");
+        hints.setOnAction( (e) -> refreshHints() );
         statusText1 = new Text();
         statusText2 = new Text();
-        VBox v = new VBox(b0,b1,b2,b3,statusText1,statusText2);
+        VBox v = new VBox(b0,b1,b2,b3,b4,hints,statusText1,statusText2);
         VBox.setMargin(b3, new Insets(10, 0, 0, 0));
+        VBox.setMargin(hints, new Insets(10, 0, 0, 0));
         grid.add(v, 1, 0);
         getChildren().add(grid);
         
     }
 
+    // The board with a hole per field: one path filled even/odd, no shape subtraction per field
     private Shape makeGrid() {
-        Shape shape = new Rectangle((game.getCols() + 1) * DISC_SIZE, (game.getRows() + 1) * DISC_SIZE);
-        for (int y = 0; y < game.getRows(); y++) {
-            for (int x = 0; x < game.getCols(); x++) {
-                Circle circle = new Circle(DISC_SIZE / 2);
-                circle.setCenterX(DISC_SIZE / 2);
-                circle.setCenterY(DISC_SIZE / 2);
-                circle.setTranslateX(x * (DISC_SIZE + 5) + DISC_SIZE / 4);
-                circle.setTranslateY(y * (DISC_SIZE + 5) + DISC_SIZE / 4);
-                shape = Shape.subtract(shape, circle);
+        double w = (cols + 1) * DISC_SIZE, h = (rows + 1) * DISC_SIZE, r = DISC_SIZE / 2;
+        Path path = new Path(new MoveTo(0, 0), new LineTo(w, 0), new LineTo(w, h), new LineTo(0, h), new ClosePath());
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                double cx = x * (DISC_SIZE + 5) + DISC_SIZE / 4 + r, cy = y * (DISC_SIZE + 5) + DISC_SIZE / 4 + r;
+                path.getElements().addAll(new MoveTo(cx - r, cy), new ArcTo(r, r, 0, cx + r, cy, false, true),
+                        new ArcTo(r, r, 0, cx - r, cy, false, true), new ClosePath());
             }
         }
-        shape.setFill(Color.DARKBLUE);
-        return shape;
+        path.setFillRule(FillRule.EVEN_ODD);
+        path.setFill(Color.DARKBLUE);
+        path.setStroke(null);
+        return path;
+    }
+
+    // All discs and markers are created once, moves change their color and visibility
+    private void makeDiscs() {
+        discs = new Circle[cols][rows];
+        markers = new Circle[cols][rows];
+        drops = new TranslateTransition[cols][rows];
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) {
+                double ty = (rows - y - 1) * (DISC_SIZE + 5) + DISC_SIZE / 4;
+                discs[x][y] = makeDisc(DISC_SIZE / 2, x, ty);
+                markers[x][y] = makeDisc(DISC_SIZE / 4, x, ty);
+                drops[x][y] = new TranslateTransition(Duration.seconds(0.6), discs[x][y]);
+                drops[x][y].setToY(ty);
+            }
+        }
+        for (Circle[] c : discs) discRoot.getChildren().addAll(c);
+        for (Circle[] c : markers) discRoot.getChildren().addAll(c);
+    }
+
+    private Circle makeDisc(double radius, int column, double translateY) {
+        Circle disc = new Circle(radius);
+        disc.setCenterX(DISC_SIZE / 2);
+        disc.setCenterY(DISC_SIZE / 2);
+        disc.setTranslateX(column * (DISC_SIZE + 5) + DISC_SIZE / 4);
+        disc.setTranslateY(translateY);
+        disc.setVisible(false);
+        return disc;
+    }
+
+    private void clearDiscs() {
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) setField(Color.WHITE, false, false, x, y);
+        }
+    }
+
+    // Hint texts in the strip below the holes, clicks go through to the columns
+    private List<Text> makeHints() {
+        hintTexts = new Text[cols];
+        for (int x = 0; x < cols; x++) {
+            hintTexts[x] = new Text();
+            hintTexts[x].setX(x * (DISC_SIZE + 5) + DISC_SIZE / 4 + DISC_SIZE / 2 - 12);
+            hintTexts[x].setY(rows * (DISC_SIZE + 5) + DISC_SIZE / 4 + 22);
+            hintTexts[x].setMouseTransparent(true);
+        }
+        return List.of(hintTexts);
     }
 
     private List<Rectangle> makeColumns() {
         List<Rectangle> list = new ArrayList<>();
-        for (int x = 0; x < game.getCols(); x++) {
-            Rectangle rect = new Rectangle(DISC_SIZE, (game.getRows() + 1) * DISC_SIZE);
+        for (int x = 0; x < cols; x++) {
+            Rectangle rect = new Rectangle(DISC_SIZE, (rows + 1) * DISC_SIZE);
             rect.setTranslateX(x * (DISC_SIZE + 5) + DISC_SIZE / 4);
             rect.setFill(Color.TRANSPARENT);
             rect.setOnMouseEntered(e -> rect.setFill(Color.rgb(200, 200, 200, 0.2)));
@@ -99,11 +168,14 @@ public class Connect4Frame extends Parent {
     }
 
     private void newGame(boolean c1, boolean c2) {
-        discRoot.getChildren().clear();
-        game = new Connect4Game(c1, c2, 
-                (Color color,boolean animated,boolean marker,int column,int row) -> placeDisc(color, animated, marker, column, row),
-                (String s) -> statusText2.setText(s));
+        if (game != null) game.cancel();
+        clearDiscs();
+        Connect4EngineSettings settings = Connect4EngineSettings.parse(System.getProperty("connect4.engine", "")); // e.g. -Dconnect4.engine=ponder=true
+        game = new Connect4Game(c1 ? settings : null, c2 ? settings : null, 
+                (int piece,boolean animated,boolean marker,int column,int row) -> setField(colorOf(piece), animated, marker, column, row),
+                (String s) -> Platform.runLater(() -> statusText2.setText(s))); // Status also comes from the search thread
         if (c1 && c2) computerMove();
+        refreshHints();
     }
 
     private void humanMove(int col) {
@@ -111,36 +183,83 @@ public class Connect4Frame extends Parent {
             newGame(false,true);
         }
         if (game.humanMove(col)) {
-            if (game.nextIsComputer()) { // Computer move in 1 second to complete human move animation
-                Timeline timer = new Timeline(new KeyFrame(Duration.seconds(1), (e) -> computerMove()));
-                timer.play();
+            if (game.nextIsComputer()) { // The search runs while the disc drops
+                computerMove();
             }
+            refreshHints();
         }
     }
 
+    private void undo() {
+        if (game == null) return;
+        game.undo();
+        if (!game.isOver() && game.nextIsComputer()) computerMove(); // Computer vs computer continues
+        refreshHints();
+    }
+
+    private void redo() {
+        if (game == null) return;
+        if (game.redo() && !game.isOver() && game.nextIsComputer()) computerMove(); // Analysed positions need no search
+        refreshHints();
+    }
+
+    // Search in the background, play the move on the FX thread unless the game or position was changed meanwhile
     private void computerMove() {
-        if (game.computerMove()) {
-            if (game.nextIsComputer()) { // Do another Computer move in 1 second
-              Timeline timer = new Timeline(new KeyFrame(Duration.seconds(1), (e) -> computerMove()));
-              timer.play();
+        final Connect4Game g = game;
+        final CompletableFuture<Integer> f = g.computerMoveAsync();
+        f.thenAcceptAsync(col -> {
+            if (g == game && g.computerMove(f, col)) {
+                if (g.nextIsComputer()) computerMove(); // Do another Computer move
+                else refreshHints();
             }
-        }
+        }, Platform::runLater);
+    }
+
+    // Score all columns for a human to move in the background, shown unless a move was made meanwhile
+    private void refreshHints() {
+        for (Text t : hintTexts) t.setText("");
+        if (!hints.isSelected() || game == null || game.isOver() || game.nextIsComputer()) return;
+        final Connect4Game g = game;
+        final String moves = g.getMoves();
+        g.hintsAsync().thenAcceptAsync(scores -> {
+            if (g != game || !moves.equals(g.getMoves())) return;
+            int best = Connect4Game.HINT_NONE;
+            for (int s : scores) best = Math.max(best, s);
+            for (int x = 0; x < cols; x++) {
+                int s = scores[x];
+                hintTexts[x].setText(s == Connect4Game.HINT_NONE ? "" : s == Connect4Game.HINT_WIN ? "Win" : s == -Connect4Game.HINT_WIN ? "Loss" : String.format("%+d", s));
+                hintTexts[x].setFill(s == best ? Color.LIGHTGREEN : Color.WHITE);
+            }
+        }, Platform::runLater);
     }
 
 
-    private void placeDisc(Color color, boolean animated, boolean marked, int column, int row) {  
-        Circle disc = new Circle(DISC_SIZE / (marked?4:2), color);
-        disc.setCenterX(DISC_SIZE / 2);
-        disc.setCenterY(DISC_SIZE / 2);
-        discRoot.getChildren().add(disc);
-        disc.setTranslateX(column * (DISC_SIZE + 5) + DISC_SIZE / 4);
-        if (marked || !animated) {
-            disc.setTranslateY((Connect4Game.getRows()-row-1) * (DISC_SIZE + 5) + DISC_SIZE / 4);            
+    private static Color colorOf(int piece) {
+        switch (piece) {
+        case Connect4Game.RED: return Color.RED;
+        case Connect4Game.YELLOW: return Color.YELLOW;
+        default: return Color.WHITE;
+        }
+    }
+
+    // Show a field: a marker on top of the disc, or the disc in a color (white is empty), no nodes are created
+    private void setField(Color color, boolean animated, boolean marked, int column, int row) {
+        Circle marker = markers[column][row];
+        if (marked) {
+            marker.setFill(color);
+            marker.setVisible(true);
+            return;
         }
-        else { // Animate drop
-            TranslateTransition animation = new TranslateTransition(Duration.seconds(0.6), disc);
-            animation.setToY((Connect4Game.getRows()-row-1) * (DISC_SIZE + 5) + DISC_SIZE / 4);
-            animation.play();
+        marker.setVisible(false);
+        Circle disc = discs[column][row];
+        TranslateTransition drop = drops[column][row];
+        drop.stop();
+        disc.setTranslateY(drop.getToY());
+        disc.setFill(color);
+        disc.setVisible(color != Color.WHITE);
+        if (animated && disc.isVisible()) { // Animate drop
+            disc.setTranslateY(0);
+            drop.playFromStart();
         }
     }
     
@@ -0,0 +1,153 @@
+package connect4game;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A player with minmax ai algorithm
+public class Connect4AiPlayer extends Connect4Player {
+
+    private final static long MIN_TIME_BUDGET = 10; // ms, search time left after a ponder hit at least
+
+    private final Connect4Game game;
+    private final Connect4Engine engine;
+
+    // Statistics of all moves
+    private int moves;
+    private long nodes;
+    private long time; // ns, wall clock of the move computation (including the end of pondering)
+    private int ponderHits; // The opponent played the expected reply
+    private int ponderMisses;
+
+    // Pondering: search of the position after the expected reply during the opponent's turn
+    private static final class Ponder {
+        final Connect4BitBoard board; // Position searched, the own move is next after a correct guess
+        final AtomicBoolean stop = new AtomicBoolean();
+        final long start = System.nanoTime();
+        CompletableFuture<Connect4SearchResult> result;
+
+        Ponder(Connect4BitBoard board) {
+            this.board = board;
+        }
+    }
+    private Connect4BitBoard expected; // Position after the own move of the last search
+    private int expectedReply = -1; // Opponent's reply of the principal variation of the last search or -1
+    private Ponder ponder; // Pondering in progress or null
+
+    Connect4AiPlayer(Connect4Game game, Connect4Board.Piece p, String name, Connect4EngineSettings settings) {
+        this(game, p, name, new Connect4Engine(settings));
+    }
+
+    // Player with an engine of its own or reused from a previous game (e.g. Connect4Tournament)
+    Connect4AiPlayer(Connect4Game game, Connect4Board.Piece p, String name, Connect4Engine engine) {
+        super(p,name);
+        this.game = game;
+        this.engine = engine;
+    }
+
+    @Override
+    boolean isComputer() {
+        return true;
+    }
+
+    @Override
+    Connect4EngineSettings getSettings() {
+        return engine.getSettings();
+    }
+
+    @Override
+    Optional<Connect4SearchResult> computeMove(Connect4BitBoard board, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        long budget = engine.getSettings().getTimeBudget();
+        Connect4SearchResult r = null;
+        Ponder p = takePonder();
+        if (p != null) { // Stop pondering and reuse the result if the opponent played the expected reply
+            p.stop.set(true);
+            Connect4SearchResult pr = p.result.join();
+            if (p.board.samePosition(board)) {
+                ponderHits++;
+                long pondered = (start - p.start) / 1000000;
+                if (pondered >= budget && pr.col >= 0) r = pr; // Searched long enough
+                else budget = Math.max(MIN_TIME_BUDGET, budget - pondered); // The transposition table holds the iterations so far
+            } else {
+                ponderMisses++;
+            }
+        }
+        if (r == null) {
+            r = engine.search(board, stop, (depth, col, score) -> {
+                if (!stop.get()) game.statusUpdate(name+" is thinking: depth "+depth+", "+col+"/"+score);
+            }, budget);
+        }
+        if (stop.get()) return Optional.empty(); // Cancelled
+        moves++;
+        nodes += r.nodes;
+        time += System.nanoTime() - start;
+        if (r.score == +Connect4Search.WIN_SCORE) {
+            game.statusUpdate(name+" will win!");
+        } else if (r.score == -Connect4Search.WIN_SCORE) {
+            game.statusUpdate(name+" may loose");
+        } else {
+            game.statusUpdate(r.col+"/"+r.score);
+        }
+        if (game.isVerbose()) System.out.println(name+": col="+r.col+",score="+r.score+" "+r.stats);
+        if (r.col>=0) {
+            synchronized (this) {
+                expected = board.copy();
+                expected.put_(r.col);
+                expectedReply = r.pv.length > 1 ? r.pv[1] : -1;
+            }
+            return Optional.of(r);
+        }
+        else return Optional.empty();
+    }
+
+    // Search the position after the expected reply until the opponent has moved, without an expected reply the
+    // opponent's position is searched (fills the transposition table for all replies)
+    @Override
+    synchronized void ponder(Connect4BitBoard board, Executor executor) {
+        stopPondering();
+        if (!engine.getSettings().isPonder()) return;
+        Connect4BitBoard b = board.copy();
+        if (expected != null && expected.samePosition(board) && expectedReply >= 0 && b.canPlay(expectedReply)) {
+            b.put_(expectedReply);
+            if (b.won() || b.getTotPieces() >= b.getGeometry().cells) b = board.copy(); // Nothing left to search
+        }
+        Ponder p = new Ponder(b);
+        p.result = CompletableFuture.supplyAsync(() -> engine.search(p.board, p.stop, null, Connect4EngineSettings.NO_TIME_LIMIT), executor);
+        ponder = p;
+    }
+
+    @Override
+    synchronized void stopPondering() {
+        if (ponder != null) ponder.stop.set(true);
+        ponder = null;
+    }
+
+    private synchronized Ponder takePonder() {
+        Ponder p = ponder;
+        ponder = null;
+        return p;
+    }
+
+    int getMoves() {
+        return moves;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    int getPonderHits() {
+        return ponderHits;
+    }
+
+    int getPonderMisses() {
+        return ponderMisses;
+    }
+
+} // Connect4AiPlayer
@@ -0,0 +1,170 @@
+package connect4game;
+// Batch analysis of recorded games: move sequences are read as a stream, the positions are searched by a pool of
+// workers with one engine each and a shared transposition table, results are reported as they complete
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+public final class Connect4Analyzer {
+
+    // Analysis of one position
+    public static final class Result {
+
+        private final int line; // Input line number, starting with 1
+        private final String moves; // Moves to the position
+        private final int col; // Best column, -1 if the game is over
+        private final int score; // Seen from the player to move
+        private final int depth;
+        private final long time; // ns
+        private final String error; // Invalid input line or null
+
+        Result(int line, String moves, int col, int score, int depth, long time, String error) {
+            this.line = line;
+            this.moves = moves;
+            this.col = col;
+            this.score = score;
+            this.depth = depth;
+            this.time = time;
+            this.error = error;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMoves() {
+            return moves;
+        }
+
+        public int getPly() {
+            return moves.length();
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        // Tab separated: line, ply, moves, column, score, depth, time in ms (or line and error)
+        @Override
+        public String toString() {
+            if (error != null) return line + "\terror\t" + error;
+            return line + "\t" + getPly() + "\t" + moves + "\t" + col + "\t" + score + "\t" + depth + "\t" + time / 1000000;
+        }
+    }
+
+    private final static int QUEUE_PER_WORKER = 4; // Games read ahead per worker, bounds the memory use
+    private final static String[] END = new String[0]; // End of input marker in the queue
+
+    private final Connect4EngineSettings settings;
+    private final Connect4Geometry geometry;
+    private final int workers;
+    private final boolean allPositions;
+
+    // Analyze standard board games, allPositions: every position of a game, otherwise only the final one
+    public Connect4Analyzer(Connect4EngineSettings settings, int workers, boolean allPositions) {
+        this(settings, workers, allPositions, Connect4Geometry.STANDARD);
+    }
+
+    Connect4Analyzer(Connect4EngineSettings settings, int workers, boolean allPositions, Connect4Geometry geometry) {
+        if (workers < 1) throw new IllegalArgumentException("workers " + workers);
+        this.settings = settings;
+        this.geometry = geometry;
+        this.workers = workers;
+        this.allPositions = allPositions;
+    }
+
+    // Analyze all games of the input, one move sequence per line (column digits, other characters like "[3, 3, 4]"
+    // are ignored), results is called from the worker threads, returns the number of analyzed positions
+    public long analyze(BufferedReader in, Consumer<Result> results) throws IOException, InterruptedException {
+        BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(workers * QUEUE_PER_WORKER);
+        Connect4TranspositionTable tt = new Connect4TranspositionTable(settings.getTtSizeMb());
+        long[] positions = new long[workers];
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            final int w = i;
+            threads[i] = new Thread(() -> {
+                Connect4Engine engine = new Connect4Engine(settings, tt);
+                try {
+                    for (String[] game = queue.take(); game != END; game = queue.take()) {
+                        int line = Integer.parseInt(game[0]);
+                        try {
+                            positions[w] += analyze(engine, line, game[1], results);
+                        } catch (RuntimeException e) { // Keep the worker alive, the reader would block otherwise
+                            results.accept(new Result(line, "", -1, 0, 0, 0, e.toString()));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    engine.close();
+                }
+            }, "Connect4 analyzer " + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        try {
+            int line = 0;
+            for (String s = in.readLine(); s != null; s = in.readLine()) {
+                line++;
+                if (!s.isBlank()) queue.put(new String[] { Integer.toString(line), s });
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) queue.put(END);
+            for (Thread t : threads) t.join();
+        }
+        long n = 0;
+        for (long p : positions) n += p;
+        return n;
+    }
+
+    // Replay a game on a board of this worker and search its positions
+    private int analyze(Connect4Engine engine, int line, String input, Consumer<Result> results) {
+        StringBuilder moves = new StringBuilder();
+        for (char ch : input.toCharArray()) {
+            if (Character.isLetterOrDigit(ch)) moves.append(ch);
+        }
+        Connect4BitBoard b;
+        try {
+            b = Connect4BitBoard.ofMoves(geometry, moves.toString());
+        } catch (IllegalArgumentException e) {
+            results.accept(new Result(line, moves.toString(), -1, 0, 0, 0, e.getMessage()));
+            return 0;
+        }
+        if (!allPositions) {
+            results.accept(analyze(engine, line, moves.toString(), b));
+            return 1;
+        }
+        Connect4BitBoard p = new Connect4BitBoard(geometry);
+        for (int i = 0; i <= moves.length(); i++) {
+            results.accept(analyze(engine, line, moves.substring(0, i), p));
+            if (i < moves.length()) p.put_(Character.digit(moves.charAt(i), Character.MAX_RADIX));
+        }
+        return moves.length() + 1;
+    }
+
+    private Result analyze(Connect4Engine engine, int line, String moves, Connect4BitBoard b) {
+        if (b.won()) return new Result(line, moves, -1, -Connect4Search.WIN_SCORE, 0, 0, null); // Lost by the player to move
+        if (b.getTotPieces() >= geometry.cells) return new Result(line, moves, -1, 0, 0, 0, null); // Draw
+        Connect4SearchResult r = engine.search(b);
+        return new Result(line, moves, r.col, r.score, r.depth, r.time, null);
+    }
+}
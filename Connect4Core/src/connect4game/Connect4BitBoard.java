@@ -0,0 +1,245 @@
+package connect4game;
+// The board as two bit masks, used in the search hot path
+
+final class Connect4BitBoard {
+
+    // Check mode: compare the incremental score with a full line scan on every put_/remove_ (-Dconnect4.checkScore=true)
+    // by Connect4Board.Line.value() and by the bit masks of the lines
+    final static boolean CHECK_SCORE = Boolean.getBoolean("connect4.checkScore");
+
+    // Dimensions and tables, copied into final fields for the hot path
+    private final Connect4Geometry g;
+    private final int h1;
+    private final int topBit; // Highest field of the lowest column
+    private final long columnBits; // Mask of the lowest column
+    private final int[][] cellLines;
+    private final long[][] zobrist;
+    private final int[] mirrorBits;
+
+    // Board data
+    private long own; // Pieces of the player to move
+    private long all; // All pieces
+    private int toMove = Connect4Board.Piece.RED.getFieldValue(); // Field value of the player to move
+    private int moves; // Overall number of pieces on the board
+
+    // Incremental evaluation
+    private byte[] red; // Number of red pieces per line
+    private byte[] yellow; // Number of yellow pieces per line
+    private int score; // Sum of all line values, seen from red
+    private int weighted; // Sum of all line weights (Connect4Evaluator.LINE_WEIGHTS), seen from red
+    private int fours; // Number of lines completed with 4 pieces
+
+    // Zobrist hash of the position and of its left/right mirror image
+    private long hash;
+    private long mirrorHash;
+
+    private Connect4Board reference; // Lines of the check mode on this board, created when first needed
+
+    // Empty standard board
+    Connect4BitBoard() {
+        this(Connect4Geometry.STANDARD);
+    }
+
+    Connect4BitBoard(Connect4Geometry g) {
+        this.g = g;
+        this.h1 = g.h1;
+        this.topBit = g.rows - 1;
+        this.columnBits = (1L << g.rows) - 1;
+        this.cellLines = g.cellLines;
+        this.zobrist = g.zobrist;
+        this.mirrorBits = g.mirrorBits;
+        this.red = new byte[g.lines.length];
+        this.yellow = new byte[g.lines.length];
+    }
+
+    Connect4BitBoard copy() {
+        Connect4BitBoard b = new Connect4BitBoard(g);
+        b.own = own;
+        b.all = all;
+        b.toMove = toMove;
+        b.moves = moves;
+        b.red = red.clone();
+        b.yellow = yellow.clone();
+        b.score = score;
+        b.weighted = weighted;
+        b.fours = fours;
+        b.hash = hash;
+        b.mirrorHash = mirrorHash;
+        return b;
+    }
+
+    // Create a standard board from a move sequence, a string of column digits starting with red, e.g. "3342"
+    static Connect4BitBoard ofMoves(String moves) {
+        return ofMoves(Connect4Geometry.STANDARD, moves);
+    }
+
+    // Create a board from a move sequence, columns from 10 on are letters (a = 10)
+    static Connect4BitBoard ofMoves(Connect4Geometry g, String moves) {
+        Connect4BitBoard b = new Connect4BitBoard(g);
+        for (char ch : moves.toCharArray()) {
+            int c = Character.digit(ch, Character.MAX_RADIX);
+            if (c < 0 || c >= g.cols || !b.canPlay(c) || b.won()) throw new IllegalArgumentException("Illegal move " + ch + " in " + moves);
+            b.put_(c);
+        }
+        return b;
+    }
+
+    Connect4Geometry getGeometry() {
+        return g;
+    }
+
+    // Bit of the next piece in a column (0 if full)
+    long moveMask(int col) {
+        return (all + (1L << (col * h1))) & (columnBits << (col * h1));
+    }
+
+    // Get a piece field value
+    int get_(int col, int row) {
+        long m = g.cellMask(col, row);
+        if ((all & m) == 0) return 0;
+        return (own & m) != 0 ? toMove : -toMove;
+    }
+
+    boolean canPlay(int col) {
+        return (all & (1L << (col * h1 + topBit))) == 0;
+    }
+
+    // Put a piece of the player to move
+    void put_(int col) {
+        long m = moveMask(col);
+        updateLines(Long.numberOfTrailingZeros(m), toMove, +1);
+        own ^= all;
+        all |= m;
+        toMove = -toMove;
+        moves++;
+        if (CHECK_SCORE) checkScore();
+    }
+
+    // Remove the top piece of a column
+    void remove_(int col) {
+        long m = Long.highestOneBit(all & (columnBits << (col * h1)));
+        all &= ~m;
+        own ^= all;
+        toMove = -toMove;
+        moves--;
+        updateLines(Long.numberOfTrailingZeros(m), toMove, -1);
+        if (CHECK_SCORE) checkScore();
+    }
+
+    // Update hash, piece counts and score of all lines through a field, p is the piece field value, d is +1 (put) or -1 (remove)
+    private void updateLines(int bit, int p, int d) {
+        long[] z = zobrist[p > 0 ? 0 : 1];
+        hash ^= z[bit];
+        mirrorHash ^= z[mirrorBits[bit]];
+        byte[] mine = p > 0 ? red : yellow;
+        int[] w = Connect4Evaluator.LINE_WEIGHTS;
+        for (int l : cellLines[bit]) {
+            int r = red[l], y = yellow[l];
+            score -= (r != 0 && y != 0) ? 0 : r - y;
+            weighted -= w[r * 5 + y];
+            if (d < 0 && mine[l] == 4) fours--;
+            mine[l] += d;
+            if (d > 0 && mine[l] == 4) fours++;
+            r = red[l];
+            y = yellow[l];
+            score += (r != 0 && y != 0) ? 0 : r - y;
+            weighted += w[r * 5 + y];
+        }
+    }
+
+    // Position key, the same for a position and its mirror image
+    long getKey() {
+        return Math.min(hash, mirrorHash);
+    }
+
+    // The key was taken from the mirror image, columns stored with the key have to be mirrored
+    boolean isKeyMirrored() {
+        return mirrorHash < hash;
+    }
+
+    // Same pieces on the board (and the same player to move)
+    boolean samePosition(Connect4BitBoard b) {
+        return own == b.own && all == b.all;
+    }
+
+    // Exact position key: own + all is unique since every column has an empty bit above its pieces (not for packed
+    // geometries, see Connect4Geometry.checkPositionKeys)
+    long getPositionKey() {
+        return own + all;
+    }
+
+    // Exact position key of the mirror image
+    long getMirroredPositionKey() {
+        return g.mirror(own) + g.mirror(all);
+    }
+
+    // Exact position key, the same for a position and its mirror image
+    long getCanonicalPositionKey() {
+        return Math.min(getPositionKey(), getMirroredPositionKey());
+    }
+
+    // Sum of pieces in all lines which are not blocked, seen from the player to move (incremental, O(1))
+    int eval() {
+        return toMove * score;
+    }
+
+    // Sum of the line weights of the threat aware evaluation, seen from the player to move (incremental, O(1))
+    int evalWeighted() {
+        return toMove * weighted;
+    }
+
+    // Compare the incremental evaluation with the full scan of the Line objects, then with the bit mask scan
+    void checkScore() {
+        if (reference == null) reference = new Connect4Board(this);
+        reference.checkLines();
+        if (eval() != scan() || evalWeighted() != scanWeighted() || (fours != 0) != (g.isWin(own) || g.isWin(own ^ all))) {
+            throw new IllegalStateException("Incremental score " + eval() + "/" + evalWeighted() + "/" + fours
+                    + " does not match scan " + scan() + "/" + scanWeighted());
+        }
+    }
+
+    int getColPieces(int col) {
+        return Long.bitCount(all & (columnBits << (col * h1)));
+    }
+
+    int getTotPieces() {
+        return moves;
+    }
+
+    int getToMove() {
+        return toMove;
+    }
+
+    long getOwn() {
+        return own;
+    }
+
+    long getAll() {
+        return all;
+    }
+
+    // A line is completed with 4 pieces (in a game always by the player who made the last move)
+    boolean won() {
+        return fours != 0;
+    }
+
+    // Sum of pieces in all lines which are not blocked, seen from the player to move (full line scan)
+    int scan() {
+        long opp = own ^ all;
+        int s = 0;
+        for (long l : g.lines) {
+            long o = l & own, x = l & opp;
+            if (x == 0) s += Long.bitCount(o);
+            else if (o == 0) s -= Long.bitCount(x);
+        }
+        return s;
+    }
+
+    // Sum of the line weights, seen from the player to move (full line scan)
+    int scanWeighted() {
+        long opp = own ^ all;
+        int s = 0;
+        for (long l : g.lines) s += Connect4Evaluator.LINE_WEIGHTS[Long.bitCount(l & own) * 5 + Long.bitCount(l & opp)];
+        return s;
+    }
+}
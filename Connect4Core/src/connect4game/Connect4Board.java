@@ -2,40 +2,28 @@ package connect4game;
 // The board
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 
-import javafx.scene.paint.Color;
-
 class Connect4Board {
 
-    // Parameters and constants
-   public final static int COLS = 7; // Board dimensions
-   public final static int ROWS = 6;
-
      // The piece
     static enum Piece {
 
-        RED(+1, Color.RED), YELLOW(-1, Color.YELLOW), EMPTY(0, Color.WHITE);
+        RED(+1), YELLOW(-1), EMPTY(0);
 
         private final int fieldValue;
-        private final Color color;
 
-        private Piece(int fieldValue, Color color) {
+        private Piece(int fieldValue) {
             this.fieldValue = fieldValue;
-            this.color = color;
         }
 
         int getFieldValue() {
             return fieldValue;
         }
 
-        Color getColor() {
-            return color;
-        }
-
         static Piece ofFieldValue(int f) {
             switch (f) {
             case -1:
@@ -64,11 +52,11 @@ class Connect4Board {
             }
 
             int getFieldValue() {
-                return board[col][row];
+                return get_(col, row);
             }
 
             Piece getPiece() {
-                return Piece.ofFieldValue(board[col][row]);
+                return Piece.ofFieldValue(get_(col, row));
             }
         } // Field
 
@@ -99,58 +87,75 @@ class Connect4Board {
     } // Line
 
     // Board data
-    private int[][] board = new int[COLS][ROWS]; // Piece field values -1,0,+1
-    private int[] colPieces = new int[COLS]; // Number of pieces in a column
-    private int totPieces = 0; // Overall number pieces on the board
-    private List<Line> lines; // Array list of all still possible line combinations
+    private final Connect4Geometry geometry; // Dimensions
+    private final Connect4BitBoard bits; // Piece masks, pieces alternate starting with RED
+    private final List<Line> lines; // All line combinations, built once, put and remove do not touch them
 
     Connect4Board() {
-        for (int c = 0; c < COLS; c++) {
-            colPieces[c] = 0;
-            for (int r = 0; r < ROWS; r++) {
-                board[c][r] = Piece.EMPTY.fieldValue;
-            }
-        }
-        buildLines();
+        this(Connect4Geometry.STANDARD);
+    }
+
+    Connect4Board(Connect4Geometry geometry) {
+        this(new Connect4BitBoard(geometry));
+    }
+
+    // Board on the pieces of a bitboard, the lines read its fields (reference scan of Connect4BitBoard.checkScore)
+    Connect4Board(Connect4BitBoard bits) {
+        this.geometry = bits.getGeometry();
+        this.bits = bits;
+        this.lines = Collections.unmodifiableList(buildLines());
+    }
+
+    Connect4Geometry getGeometry() {
+        return geometry;
+    }
+
+    int getCols() {
+        return geometry.cols;
+    }
+
+    int getRows() {
+        return geometry.rows;
+    }
+
+    // The bitboard, the search works on a copy of it
+    Connect4BitBoard getBitBoard() {
+        return bits;
     }
 
     // Get a piece
     int get_(int col, int row) {
-        return board[col][row];
+        return bits.get_(col, row);
     }
     Piece getPiece(int col, int row) {
         return Piece.ofFieldValue(get_(col, row));
     }
 
-    // Put a piece
+    // Put a piece, p must be the field value of the player to move
     void put_(int col, int p) {
-        board[col][colPieces[col]++] = p;
-        totPieces = getTotPieces() + 1;
+        if (p != bits.getToMove()) throw new IllegalArgumentException("Not on move: " + Piece.ofFieldValue(p));
+        bits.put_(col);
     }
     boolean putPiece(int col, Piece piece) {
-        if (colPieces[col]>=ROWS) return false;
+        if (col < 0 || col >= geometry.cols || !bits.canPlay(col)) return false;
         put_(col,piece.getFieldValue());
-        updateLines();
         return true;
     }
     
     // Remove a piece
     void remove_(int col) {
-        board[col][--colPieces[col]] = 0;
-        totPieces = getTotPieces() - 1;
+        bits.remove_(col);
     }
-    void removePiece(int col) {
+    void removePiece(int col) { // Constant time, undo and redo only change the bitboard
         remove_(col);
-        buildLines(); // Rebuild the line list
-        updateLines();
     }
     
     int getColPieces(int col) {
-        return colPieces[col];
+        return bits.getColPieces(col);
     }
 
     int getTotPieces() {
-        return totPieces;
+        return bits.getTotPieces();
     }
 
     List<Line> getLines() {
@@ -161,32 +166,45 @@ class Connect4Board {
         return lines.size();
     }
 
+    // Compare the incremental evaluation of the bitboard with the full scan of all lines by Line.value() (the sum the
+    // search used before the bitboard kept it), the line weights and the win
+    void checkLines() {
+        int score = 0, weighted = 0;
+        boolean four = false;
+        for (Line l : lines) {
+            int v = l.value(), red = 0, yellow = 0;
+            for (Line.Field f : l.fields) {
+                if (f.getFieldValue() > 0) red++;
+                else if (f.getFieldValue() < 0) yellow++;
+            }
+            score += v;
+            weighted += Connect4Evaluator.LINE_WEIGHTS[red * 5 + yellow];
+            four |= Math.abs(v) == 4;
+        }
+        int toMove = bits.getToMove();
+        if (bits.eval() != toMove * score || bits.evalWeighted() != toMove * weighted || bits.won() != four) {
+            throw new IllegalStateException("Incremental score " + bits.eval() + "/" + bits.evalWeighted() + "/" + bits.won()
+                    + " does not match line scan " + toMove * score + "/" + toMove * weighted + "/" + four);
+        }
+    }
+
     // Create all winning line combinations of an empty field
-    private void buildLines() {
-        lines = new ArrayList<Line>();
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (r + 4 <= ROWS)
+    private List<Line> buildLines() {
+        List<Line> lines = new ArrayList<Line>();
+        int rows = geometry.rows, cols = geometry.cols;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (r + 4 <= rows)
                     lines.add(new Line(c, r, 0, 1)); // Vertical
-                if (c + 4 <= COLS)
+                if (c + 4 <= cols)
                     lines.add(new Line(c, r, 1, 0)); // Horizontal
-                if (r + 4 <= ROWS && c + 4 <= COLS)
+                if (r + 4 <= rows && c + 4 <= cols)
                     lines.add(new Line(c, r, 1, 1)); // Diagonal
-                if (r + 4 <= ROWS && c - 3 >= 0)
+                if (r + 4 <= rows && c - 3 >= 0)
                     lines.add(new Line(c, r, -1, 1));
             }
         }
-    }
-
-    // Remove all lines which currently do not have any more impact on the game (speed optimization)
-    private void updateLines() {
-        Iterator<Line> i = lines.iterator();
-        while (i.hasNext()) {
-            Line l = i.next();
-            if (l.count() != 0 && l.value() == 0) {
-                i.remove();
-            }
-        }
+        return lines;
     }
     
     // Find the first line completed with 4 pieces
@@ -200,10 +218,10 @@ class Connect4Board {
     }
     
     boolean gameOver() {
-      return gameWon() || getTotPieces() >= ROWS * COLS;
+      return gameWon() || getTotPieces() >= geometry.cells;
     }
     
     boolean gameWon() {
-        return getWinningLine().isPresent();
+        return bits.won();
     }
 }
@@ -0,0 +1,159 @@
+package connect4game;
+// Opening book: best moves of all positions up to a ply, a sorted binary file read through a memory mapped buffer
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+final class Connect4Book {
+
+    // File format: header (magic, version, columns, rows, max ply, entry count), then entries sorted by key
+    // Entry: canonical position key (long), score (short), column (byte, of the position with the smaller key), depth (byte)
+    private final static int MAGIC = 0x4334424B; // "C4BK"
+    private final static int VERSION = 2; // Version 1 had no board size
+    private final static int HEADER_BYTES = 24;
+    private final static int ENTRY_BYTES = 12;
+
+    private final static ConcurrentHashMap<Path, Connect4Book> books = new ConcurrentHashMap<>(); // Opened books, shared by all engines
+
+    private final MappedByteBuffer buffer;
+    private final Connect4Geometry geometry;
+    private final int maxPly;
+    private final int count;
+
+    private Connect4Book(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException("Not a Connect4 book (version " + VERSION + "): " + file);
+        geometry = Connect4Geometry.of(buffer.getInt(8), buffer.getInt(12));
+        maxPly = buffer.getInt(16);
+        count = buffer.getInt(20);
+        if (buffer.capacity() < HEADER_BYTES + (long) count * ENTRY_BYTES) throw new IOException("Truncated book: " + file);
+    }
+
+    // Open a book file, every file is mapped only once
+    static Connect4Book open(String file) {
+        return books.computeIfAbsent(Paths.get(file).toAbsolutePath(), p -> {
+            try {
+                return new Connect4Book(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    int getMaxPly() {
+        return maxPly;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    // Get the entry index of a position or -1, binary search without allocation
+    int probe(Connect4BitBoard board) {
+        if (board.getTotPieces() > maxPly || board.getGeometry() != geometry) return -1;
+        long key = board.getCanonicalPositionKey();
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Best column of an entry for the probed board
+    int getCol(int entry, Connect4BitBoard board) {
+        int c = buffer.get(HEADER_BYTES + entry * ENTRY_BYTES + 10);
+        return board.getPositionKey() == board.getCanonicalPositionKey() ? c : geometry.mirrorCol(c);
+    }
+
+    int getScore(int entry) {
+        return buffer.getShort(HEADER_BYTES + entry * ENTRY_BYTES + 8);
+    }
+
+    int getDepth(int entry) {
+        return buffer.get(HEADER_BYTES + entry * ENTRY_BYTES + 11);
+    }
+
+    // Generate a book: search every canonical position up to maxPly at fixed depth with one engine per thread
+    static void generate(String file, Connect4Geometry g, int maxPly, int depth, int threads) throws IOException, InterruptedException {
+        g.checkPositionKeys();
+        List<String> moves = new ArrayList<>();
+        collect(new Connect4BitBoard(g), "", maxPly, new HashSet<Long>(), moves);
+        int n = moves.size();
+        long[] keys = new long[n];
+        short[] scores = new short[n];
+        byte[] cols = new byte[n];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Connect4Engine> engines = ThreadLocal.withInitial(() -> new Connect4Engine(
+                new Connect4EngineSettings().setMaxDepth(depth).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT)));
+        for (int i = 0; i < n; i++) {
+            final int j = i;
+            pool.execute(() -> {
+                Connect4BitBoard b = Connect4BitBoard.ofMoves(g, moves.get(j));
+                Connect4SearchResult r = engines.get().search(b);
+                keys[j] = b.getCanonicalPositionKey();
+                scores[j] = (short) r.score;
+                cols[j] = (byte) (b.getPositionKey() == keys[j] ? r.col : g.mirrorCol(r.col));
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(365, TimeUnit.DAYS);
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        try (OutputStream os = Files.newOutputStream(Paths.get(file));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(g.cols);
+            out.writeInt(g.rows);
+            out.writeInt(maxPly);
+            out.writeInt(n);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeShort(scores[i]);
+                out.writeByte(cols[i]);
+                out.writeByte(depth);
+            }
+        }
+    }
+
+    // Collect the move sequences of all canonical positions up to maxPly which are not decided yet
+    private static void collect(Connect4BitBoard b, String line, int maxPly, Set<Long> seen, List<String> moves) {
+        Connect4Geometry g = b.getGeometry();
+        if (b.won() || b.getTotPieces() >= g.cells || !seen.add(b.getCanonicalPositionKey())) return;
+        moves.add(line);
+        if (b.getTotPieces() >= maxPly) return;
+        for (int c = 0; c < g.cols; c++) {
+            if (b.canPlay(c)) {
+                b.put_(c);
+                collect(b, line + Character.forDigit(c, Character.MAX_RADIX), maxPly, seen, moves);
+                b.remove_(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package connect4game;
+// The search engine of a computer player: lazy SMP, all workers search the same position on their own board copy
+// and share the transposition table
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class Connect4Engine {
+
+    private final static AtomicInteger threadCount = new AtomicInteger();
+
+    private final Connect4EngineSettings settings;
+    private final Connect4TranspositionTable tt; // Kept for the whole game, results of the previous moves are reused
+    private final Connect4Book book; // Opening book or null
+    private final Connect4Tablebase tablebase; // Endgame tablebase or null
+    private Connect4Solver solver; // Endgame solver, created when first needed
+    private final Connect4Search[] workers;
+    private final ThreadPoolExecutor helpers; // Threads of workers 1..n-1, worker 0 runs in the calling thread
+
+    Connect4Engine(Connect4EngineSettings settings) {
+        this(settings, new Connect4TranspositionTable(settings.getTtSizeMb()));
+    }
+
+    // Engine with a transposition table shared with other engines (the table is lock free)
+    Connect4Engine(Connect4EngineSettings settings, Connect4TranspositionTable tt) {
+        this.settings = settings;
+        this.tt = tt;
+        this.book = settings.getBook() != null ? Connect4Book.open(settings.getBook()) : null;
+        this.tablebase = settings.getTablebase() != null ? Connect4Tablebase.open(settings.getTablebase()) : null;
+        this.workers = new Connect4Search[settings.getThreads()];
+        for (int i = 0; i < workers.length; i++) workers[i] = new Connect4Search(tt, settings);
+        if (workers.length > 1) {
+            helpers = new ThreadPoolExecutor(workers.length - 1, workers.length - 1, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), r -> {
+                        Thread t = new Thread(r, "Connect4 search " + threadCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            helpers.allowCoreThreadTimeOut(true);
+        } else {
+            helpers = null;
+        }
+    }
+
+    // Search progress, called from the search thread after every finished iteration
+    interface Progress {
+        void update(int depth, int col, int score);
+    }
+
+    Connect4EngineSettings getSettings() {
+        return settings;
+    }
+
+    // Search the best move within the time budget and depth limit of the settings
+    Connect4SearchResult search(Connect4BitBoard board) {
+        return search(board, new AtomicBoolean(), null);
+    }
+
+    // Search the best move, setting stop (from any thread) ends the search promptly with the result of the last
+    // finished iteration, one search at a time per engine
+    Connect4SearchResult search(Connect4BitBoard board, AtomicBoolean stop, Progress progress) {
+        return search(board, stop, progress, settings.getTimeBudget());
+    }
+
+    // Search with another time budget in ms than the settings (pondering)
+    Connect4SearchResult search(Connect4BitBoard board, AtomicBoolean stop, Progress progress, long timeBudget) {
+        return search(board, stop, progress, timeBudget, settings.getMaxDepth());
+    }
+
+    // Search with another time budget and depth limit than the settings (requests of the analysis service)
+    synchronized Connect4SearchResult search(Connect4BitBoard board, AtomicBoolean stop, Progress progress, long timeBudget, int maxDepth) {
+        Object event = Connect4Telemetry.searchStarted();
+        Connect4SearchResult r = search(board, stop, progress, timeBudget, maxDepth, System.nanoTime());
+        Connect4Telemetry.searchFinished(r.stats, event);
+        return r;
+    }
+
+    private Connect4SearchResult search(Connect4BitBoard board, AtomicBoolean stop, Progress progress, long timeBudget, int maxDepth, long start) {
+        if (book != null) { // Book hit, search misses
+            int e = book.probe(board);
+            if (e >= 0) {
+                int col = book.getCol(e, board);
+                return new Connect4SearchResult(col, book.getScore(e), new int[] { col }, false,
+                        new Connect4SearchStats("book", book.getDepth(e), System.nanoTime() - start, null));
+            }
+        }
+        if (tablebase != null) { // Exact result of the tablebase
+            int[] r = new int[2];
+            int col = tablebase.bestMove(board, r);
+            if (col >= 0) {
+                return new Connect4SearchResult(col, Connect4Search.solvedScore(r[0]), new int[] { col }, true,
+                        new Connect4SearchStats("tablebase", r[1], System.nanoTime() - start, null));
+            }
+        }
+        long deadline = start + timeBudget * 1000000L;
+        Connect4Geometry g = board.getGeometry();
+        if (g.cells - board.getTotPieces() <= settings.getSolverThreshold()) { // Solve exactly, search if too slow
+            if (solver == null || solver.getGeometry() != g) solver = new Connect4Solver(g);
+            int[] r = new int[2];
+            int col = solver.bestMove(board, start + timeBudget * 500000L, stop, r);
+            if (col >= 0) {
+                return new Connect4SearchResult(col, Connect4Search.solvedScore(r[0]), new int[] { col }, true, solverStats(r[1], start));
+            }
+            if (stop.get()) return new Connect4SearchResult(-1, 0, new int[0], false, solverStats(0, start));
+        }
+        int limit = Math.min(maxDepth, g.cells - board.getTotPieces());
+        AtomicBoolean helperStop = new AtomicBoolean(); // Helpers run until worker 0 is done
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            Connect4Search w = workers[i];
+            Connect4BitBoard b = board.copy();
+            int startDepth = 1 + i % 2; // Every second helper starts one iteration deeper
+            futures.add(helpers.submit(() -> w.run(b, startDepth, limit, deadline, helperStop, null)));
+        }
+        workers[0].run(board.copy(), 1, limit, deadline, stop, progress);
+        helperStop.set(true);
+        await(futures);
+
+        // Take the deepest finished iteration of all workers
+        Connect4Search best = workers[0];
+        long[] stats = new long[9];
+        for (Connect4Search w : workers) {
+            w.addStats(stats);
+            if (w.getCol() >= 0 && w.getDepth() > best.getDepth()) best = w;
+        }
+        return new Connect4SearchResult(best.getCol(), best.getScore(), best.getPv(), false,
+                new Connect4SearchStats("search", best.getDepth(), System.nanoTime() - start, stats));
+    }
+
+    private static void await(List<Future<?>> futures) {
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    // Multi-PV analysis: exact score and principal variation of every legal column, of the best top columns of the
+    // last iteration if top > 0, by iterative deepening within the time budget. The workers search the columns of an
+    // iteration in parallel and share the transposition table, won and lost columns are not searched again. Returns
+    // the results of the last finished iteration sorted by score.
+    synchronized Connect4SearchResult[] analyze(Connect4BitBoard board, AtomicBoolean stop, long timeBudget, int maxDepth, int top) {
+        Object event = Connect4Telemetry.searchStarted();
+        long start = System.nanoTime(), deadline = start + timeBudget * 1000000L;
+        Connect4Geometry g = board.getGeometry();
+        int limit = Math.min(maxDepth, g.cells - board.getTotPieces());
+        int[] cols = new int[g.cols], scores = new int[g.cols];
+        int[][] lines = new int[g.cols][];
+        int n = 0;
+        for (int c : g.colOrder) if (board.canPlay(c)) cols[n++] = c;
+        int m = n; // Columns of the result
+        int depth = 0;
+        for (Connect4Search w : workers) w.start(g, deadline, stop);
+        for (int d = 1; d <= limit && !board.won(); d++) {
+            if (d > 1 && top > 0) m = Math.min(top, n);
+            int[] next = new int[m];
+            int[][] nextLines = new int[m][];
+            AtomicInteger column = new AtomicInteger();
+            AtomicBoolean aborted = new AtomicBoolean();
+            final int depth0 = d, m0 = m;
+            Runnable[] tasks = new Runnable[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                Connect4Search w = workers[i];
+                Connect4BitBoard b = board.copy();
+                tasks[i] = () -> { // Take the next column until all are done
+                    for (int j; (j = column.getAndIncrement()) < m0 && !aborted.get();) {
+                        if (depth0 > 1 && Math.abs(scores[j]) == Connect4Search.WIN_SCORE) { // Decided
+                            next[j] = scores[j];
+                            nextLines[j] = lines[j];
+                        } else if (w.searchMove(b, cols[j], depth0)) {
+                            next[j] = w.getScore();
+                            nextLines[j] = w.getPv();
+                        } else {
+                            aborted.set(true);
+                        }
+                    }
+                };
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i < workers.length; i++) futures.add(helpers.submit(tasks[i]));
+            tasks[0].run();
+            await(futures);
+            if (aborted.get()) break;
+            for (int j = 0; j < m; j++) { // Sort by score, equal scores keep the column order
+                int c = cols[j], s = next[j];
+                int[] l = nextLines[j];
+                int k = j;
+                for (; k > 0 && scores[k - 1] < s; k--) {
+                    cols[k] = cols[k - 1];
+                    scores[k] = scores[k - 1];
+                    lines[k] = lines[k - 1];
+                }
+                cols[k] = c;
+                scores[k] = s;
+                lines[k] = l;
+            }
+            depth = d;
+        }
+        long[] stats = new long[9];
+        for (Connect4Search w : workers) w.addStats(stats);
+        Connect4SearchStats st = new Connect4SearchStats("multipv", depth, System.nanoTime() - start, stats);
+        Connect4Telemetry.searchFinished(st, event);
+        Connect4SearchResult[] r = new Connect4SearchResult[depth > 0 ? m : 0];
+        for (int j = 0; j < r.length; j++) r[j] = new Connect4SearchResult(cols[j], scores[j], lines[j], false, st);
+        return r;
+    }
+
+    private Connect4SearchStats solverStats(int depth, long start) {
+        long[] s = new long[9];
+        s[0] = solver.getNodes();
+        return new Connect4SearchStats("solver", depth, System.nanoTime() - start, s);
+    }
+
+    // Forget all results of previous searches, waits for a search in progress (e.g. pondering) to end
+    synchronized void clear() {
+        tt.clear();
+    }
+
+    // Stop the helper threads
+    void close() {
+        if (helpers != null) helpers.shutdownNow();
+    }
+}
@@ -0,0 +1,201 @@
+package connect4game;
+// Settings of a computer player
+
+import java.util.Locale;
+
+public final class Connect4EngineSettings {
+
+    public final static long NO_TIME_LIMIT = 24 * 3600 * 1000L; // Time budget for fixed depth searches
+
+    // Search algorithm: alpha/beta with a full window, principal variation search (null windows after the first move),
+    // PVS with an aspiration window around the score of the last iteration, MTD(f) (null windows only)
+    public enum SearchMode {
+        ALPHABETA, PVS, ASPIRATION, MTDF
+    }
+
+    // Evaluation at the search horizon: sum of the pieces of all unblocked lines, or weighted lines and threats by
+    // row parity (Connect4Evaluator)
+    public enum Evaluation {
+        LINES, THREATS
+    }
+
+    private int maxDepth = 64; // Search depth limit for iterative deepening, the number of empty fields limits it as well
+    private long timeBudget = 1000; // Search time per move in ms
+    private int ttSizeMb = 16; // Transposition table size
+    private int threads = 1; // Number of search threads
+    private String book; // Opening book file or null
+    private String tablebase; // Endgame tablebase file or null
+    private int solverThreshold = 20; // Empty fields from which on the endgame solver is used
+    private boolean threats = true; // Move ordering: immediate wins and forced blocks first
+    private boolean killers = false; // Move ordering: moves which caused a cutoff at the same ply (more nodes, see README)
+    private boolean history = false; // Move ordering: fields where moves caused cutoffs anywhere in the tree (more nodes)
+    private SearchMode searchMode = SearchMode.ALPHABETA;
+    private Evaluation evaluation = Evaluation.THREATS;
+    private boolean ponder = false; // Search the expected position during the opponent's turn
+
+    public Connect4EngineSettings() {
+    }
+
+    // Parse settings like "time=100,depth=20,tt=16,threads=1,solver=20,book=book.bin,killers=false,search=pvs,ponder=true", missing values are defaults
+    public static Connect4EngineSettings parse(String s) {
+        Connect4EngineSettings settings = new Connect4EngineSettings();
+        for (String kv : s.split(",")) {
+            if (kv.isBlank()) continue;
+            String[] p = kv.split("=", 2);
+            String v = p.length > 1 ? p[1].trim() : "";
+            switch (p[0].trim()) {
+            case "time": settings.setTimeBudget(Long.parseLong(v)); break;
+            case "depth": settings.setMaxDepth(Integer.parseInt(v)); break;
+            case "tt": settings.setTtSizeMb(Integer.parseInt(v)); break;
+            case "threads": settings.setThreads(Integer.parseInt(v)); break;
+            case "solver": settings.setSolverThreshold(Integer.parseInt(v)); break;
+            case "book": settings.setBook(v); break;
+            case "tablebase": settings.setTablebase(v); break;
+            case "threats": settings.setThreats(Boolean.parseBoolean(v)); break;
+            case "killers": settings.setKillers(Boolean.parseBoolean(v)); break;
+            case "history": settings.setHistory(Boolean.parseBoolean(v)); break;
+            case "search": settings.setSearchMode(SearchMode.valueOf(v.toUpperCase(Locale.ROOT))); break;
+            case "eval": settings.setEvaluation(Evaluation.valueOf(v.toUpperCase(Locale.ROOT))); break;
+            case "ponder": settings.setPonder(Boolean.parseBoolean(v)); break;
+            default: throw new IllegalArgumentException("Unknown engine setting: " + kv);
+            }
+        }
+        return settings;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public Connect4EngineSettings setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) throw new IllegalArgumentException("maxDepth " + maxDepth);
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    public Connect4EngineSettings setTimeBudget(long timeBudget) {
+        if (timeBudget < 1) throw new IllegalArgumentException("timeBudget " + timeBudget);
+        this.timeBudget = timeBudget;
+        return this;
+    }
+
+    public int getTtSizeMb() {
+        return ttSizeMb;
+    }
+
+    public Connect4EngineSettings setTtSizeMb(int ttSizeMb) {
+        if (ttSizeMb < 1) throw new IllegalArgumentException("ttSizeMb " + ttSizeMb);
+        this.ttSizeMb = ttSizeMb;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Connect4EngineSettings setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    public String getBook() {
+        return book;
+    }
+
+    public Connect4EngineSettings setBook(String book) {
+        this.book = book;
+        return this;
+    }
+
+    public String getTablebase() {
+        return tablebase;
+    }
+
+    // Exact results of the positions in an endgame tablebase (Connect4Tools tablebase), at the root and in the search
+    public Connect4EngineSettings setTablebase(String tablebase) {
+        this.tablebase = tablebase;
+        return this;
+    }
+
+    public int getSolverThreshold() {
+        return solverThreshold;
+    }
+
+    // Use the exact endgame solver (with half of the time budget) if at most this number of fields is empty, 0 is off
+    public Connect4EngineSettings setSolverThreshold(int solverThreshold) {
+        if (solverThreshold < 0) throw new IllegalArgumentException("solverThreshold " + solverThreshold);
+        this.solverThreshold = solverThreshold;
+        return this;
+    }
+
+    public boolean isThreats() {
+        return threats;
+    }
+
+    public Connect4EngineSettings setThreats(boolean threats) {
+        this.threats = threats;
+        return this;
+    }
+
+    public boolean isKillers() {
+        return killers;
+    }
+
+    public Connect4EngineSettings setKillers(boolean killers) {
+        this.killers = killers;
+        return this;
+    }
+
+    public boolean isHistory() {
+        return history;
+    }
+
+    public Connect4EngineSettings setHistory(boolean history) {
+        this.history = history;
+        return this;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public Connect4EngineSettings setSearchMode(SearchMode searchMode) {
+        if (searchMode == null) throw new IllegalArgumentException("searchMode null");
+        this.searchMode = searchMode;
+        return this;
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    public Connect4EngineSettings setEvaluation(Evaluation evaluation) {
+        if (evaluation == null) throw new IllegalArgumentException("evaluation null");
+        this.evaluation = evaluation;
+        return this;
+    }
+
+    public boolean isPonder() {
+        return ponder;
+    }
+
+    // Keep searching during the opponent's turn, the position after the reply of the principal variation
+    public Connect4EngineSettings setPonder(boolean ponder) {
+        this.ponder = ponder;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "time=" + timeBudget + ",depth=" + maxDepth + ",tt=" + ttSizeMb + ",threads=" + threads + ",solver=" + solverThreshold
+                + (book != null ? ",book=" + book : "") + (tablebase != null ? ",tablebase=" + tablebase : "")
+                + ",threats=" + threats + ",killers=" + killers + ",history=" + history
+                + ",search=" + searchMode.name().toLowerCase(Locale.ROOT) + ",eval=" + evaluation.name().toLowerCase(Locale.ROOT)
+                + ",ponder=" + ponder; // Same format as parse
+    }
+}
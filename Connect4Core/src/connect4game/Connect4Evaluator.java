@@ -0,0 +1,57 @@
+package connect4game;
+// Threat aware evaluation: line weights from a table indexed by the piece counts of a line (kept incrementally by the
+// board), at the leaves of the search plus the threats (empty fields completing a line of the player) weighted by
+// row parity. With an even number of rows the first player (red) wins a filled up column race with a threat on an odd
+// row, the second player (yellow) with a threat on an even row (zugzwang), unless a threat of the opponent lies below.
+
+final class Connect4Evaluator {
+
+    // Weight of an unblocked line by its number of pieces 0..3 (4 is a win, not evaluated)
+    private final static int[] WEIGHTS = { 0, 1, 3, 7, 0 };
+
+    // Line weight by the number of red and yellow pieces [red * 5 + yellow], seen from red, blocked lines count 0
+    final static int[] LINE_WEIGHTS = new int[25];
+    static {
+        for (int r = 0; r <= 4; r++) {
+            for (int y = 0; y <= 4; y++) LINE_WEIGHTS[r * 5 + y] = y == 0 ? WEIGHTS[r] : r == 0 ? -WEIGHTS[y] : 0;
+        }
+    }
+
+    private final static int DOUBLE_THREAT = 40; // The opponent has two playable threats, only one can be blocked
+    private final static int THREAT_GOOD = 24; // Threat on a row of the player's parity and no opponent threat below
+    private final static int THREAT = 4; // Any other threat which is not directly playable
+
+    private Connect4Evaluator() {
+    }
+
+    // Score of a position which is not won, seen from the player to move, a win with the next move (a playable threat
+    // of the player to move) is decisive like a won position of the search
+    static int eval(Connect4BitBoard b) {
+        Connect4Geometry g = b.getGeometry();
+        long own = b.getOwn(), all = b.getAll(), opp = own ^ all;
+        long playable = g.playable(all);
+        long ownThreats = g.winningPositions(own, all), oppThreats = g.winningPositions(opp, all);
+        if ((ownThreats & playable) != 0) return Connect4Search.WIN_SCORE;
+        int s = b.evalWeighted();
+        if (Long.bitCount(oppThreats & playable) >= 2) s -= DOUBLE_THREAT;
+        long redParity = 0, yellowParity = 0; // No parity rule with an odd number of rows
+        if (g.rows % 2 == 0) {
+            redParity = g.oddRows;
+            yellowParity = g.board & ~g.oddRows;
+        }
+        boolean red = b.getToMove() > 0;
+        return s + threats(g, ownThreats & ~playable, oppThreats, red ? redParity : yellowParity)
+                - threats(g, oppThreats & ~playable, ownThreats, red ? yellowParity : redParity);
+    }
+
+    // Weight of the threats t of a player, parity: fields of the player's row parity, other: threats of the opponent
+    private static int threats(Connect4Geometry g, long t, long other, long parity) {
+        int s = 0;
+        for (long good = t & parity; good != 0; good &= good - 1) {
+            long bit = good & -good;
+            int col = Long.numberOfTrailingZeros(bit) / g.h1;
+            if ((other & g.columnMask(col) & (bit - 1)) == 0) s += THREAT_GOOD - THREAT; // Nothing below
+        }
+        return s + THREAT * Long.bitCount(t);
+    }
+}
@@ -0,0 +1,482 @@
+package connect4game;
+// The game logic
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import connect4game.Connect4Board.Piece;
+
+final public class Connect4Game {
+
+    // The players
+    private final Connect4Player player1;
+    private final Connect4Player player2;
+    private Connect4Player nextPlayer;
+
+    // The board
+    private final Connect4Board board;
+
+    // Game status
+    boolean gameOver;
+    private boolean verbose = true; // Log moves to the console
+
+    // Variation tree, for undo, redo and navigation, a node keeps the time of its move and the engine analysis
+    private final Connect4Variation start = new Connect4Variation(); // Start position
+    private Connect4Variation current = start; // Position on the board
+
+    // Game record
+    private Connect4RecordWriter recordWriter; // Finished games are appended, null if not recorded
+    private long lastMoveTime = System.nanoTime();
+
+    // Asynchronous computer move
+    private static final ExecutorService searchExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Connect4 engine");
+        t.setDaemon(true);
+        return t;
+    });
+    private CompletableFuture<Integer> pendingMove; // Computer move in progress
+    private AtomicBoolean pendingStop; // Stops the search of the pending move
+
+    // Hints: multi-PV analysis of the position for the player to move
+    public static final int HINT_NONE = Integer.MIN_VALUE, HINT_WIN = Connect4Search.WIN_SCORE; // Full column, won position
+    private Connect4Engine hintEngine; // All processors, created when first needed
+    private AtomicBoolean hintStop; // Stops the analysis in progress
+
+    public static final int DEFAULT_COLS = Connect4Geometry.DEFAULT_COLS, DEFAULT_ROWS = Connect4Geometry.DEFAULT_ROWS;
+    public final int getRows() { return board.getRows(); }
+    public final int getCols() { return board.getCols(); }
+    
+    // Create a game, a game has a board and two players
+    public Connect4Game(boolean computer1, boolean computer2, BoardUpdateListener bl, StatusUpdateListener sl) {
+        this(computer1 ? new Connect4EngineSettings() : null, computer2 ? new Connect4EngineSettings() : null, bl, sl);
+    }
+
+    // Create a game with computer player settings, null is a human player
+    public Connect4Game(Connect4EngineSettings computer1, Connect4EngineSettings computer2, BoardUpdateListener bl, StatusUpdateListener sl) {
+        this(DEFAULT_COLS, DEFAULT_ROWS, computer1, computer2, bl, sl);
+    }
+
+    // Create a game on a board of another size, cols * rows must not exceed 64
+    public Connect4Game(int cols, int rows, Connect4EngineSettings computer1, Connect4EngineSettings computer2, BoardUpdateListener bl, StatusUpdateListener sl) {
+        this(Connect4Geometry.of(cols, rows), computer1 != null ? new Connect4Engine(computer1) : null,
+                computer2 != null ? new Connect4Engine(computer2) : null, bl, sl);
+    }
+
+    // Create a game with engines for the computer players (null is a human player), engines may be reused for several
+    // games one after the other
+    Connect4Game(Connect4Geometry geometry, Connect4Engine computer1, Connect4Engine computer2, BoardUpdateListener bl, StatusUpdateListener sl) {
+
+        boardUpdateListener = Optional.of(bl);
+        statusUpdateListener = Optional.of(sl);
+        gameOver = false;
+
+        // Create a board
+        board = new Connect4Board(geometry);
+
+        // Create players
+        if (computer1 != null) {
+            player1 = new Connect4AiPlayer(this, Connect4Board.Piece.RED, "Computer (Red)", computer1);
+        } else {
+            player1 = new Connect4HumanPlayer(Connect4Board.Piece.RED, "Human (Red)");
+        }
+        if (computer2 != null) {
+            player2 = new Connect4AiPlayer(this, Connect4Board.Piece.YELLOW, "Computer (Yellow)", computer2);
+        } else {
+            player2 = new Connect4HumanPlayer(Connect4Board.Piece.YELLOW, "Human (Yellow)");
+        }
+
+        nextPlayer = player1; // Player1 starts
+        statusUpdate(player1.getName() + " starts");
+    }
+
+    // Notify somebody (GUI) on game board changes, piece is one of RED, YELLOW or EMPTY (also used as winning line marker)
+    public final static int RED = +1, YELLOW = -1, EMPTY = 0;
+    public interface BoardUpdateListener {
+        public void Update(int piece, boolean isNew, boolean marker, int column, int row);
+    };
+    private final Optional<Connect4Game.BoardUpdateListener> boardUpdateListener;
+    private void boardUpdate(Piece piece, boolean isNew, boolean marker, int col, int row) {
+        boardUpdateListener.ifPresent(l -> l.Update(piece.getFieldValue(), isNew, marker, col, row));
+    }
+
+    // Notify somebody (GUI) on game status changes, also called from the search thread during a computer move
+    public interface StatusUpdateListener {
+        public void PrintStatus(String s);
+    };
+    private final Optional<Connect4Game.StatusUpdateListener> statusUpdateListener;
+    void statusUpdate(String s) {
+        statusUpdateListener.ifPresent(l -> l.PrintStatus(s));
+    }
+
+    // Append every finished game to a record file (null stops recording), the writer may be shared by games
+    public void setRecordWriter(Connect4RecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    // Switch console logging of moves on or off
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    boolean isVerbose() {
+        return verbose;
+    }
+
+    Connect4Player getPlayer1() {
+        return player1;
+    }
+
+    Connect4Player getPlayer2() {
+        return player2;
+    }
+
+    // The player who completed a line, null if the game is not won
+    Connect4Player getWinner() {
+        return board.gameWon() ? nextPlayer : null; // Players are not switched after the last move
+    }
+
+    // Do a move for next player regardless of human or computer (openings)
+    boolean forceMove(int col) {
+        if (doMove(nextPlayer.getPiece(), col)) {
+            nextPlayer();
+            return true;
+        }
+        return false;
+    }
+
+    // Switch players
+    private void nextPlayer() {
+        if (!isOver()) {
+            nextPlayer = (nextPlayer == player1) ? player2 : player1;
+        }
+    }
+
+    // Check game is over
+    public boolean isOver() {
+        return gameOver;
+    }
+
+    // Check next player is computer
+    public boolean nextIsComputer() {
+        return nextPlayer.isComputer();
+    }
+
+    // Do a move for next human player
+    public boolean humanMove(int col) {
+        if (!gameOver && !nextPlayer.isComputer()) {
+            if (doMove(nextPlayer.getPiece(), col)) {
+                nextPlayer();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Do a move for next computer player
+    public boolean computerMove() {
+        if (!gameOver) {
+            Optional<Integer> col = computeMove(nextPlayer, current, board.getBitBoard().copy(), new AtomicBoolean());
+            if (col.isPresent()) return computerMove(col.get());
+        }
+        return false;
+    }
+
+    // Compute a move for next computer player in a search thread, the returned column has to be played with
+    // computerMove(future, col), the future is cancelled by cancel(), undo() or another computerMoveAsync(). A position
+    // analysed before is not searched again, the future is completed at once.
+    public CompletableFuture<Integer> computerMoveAsync() {
+        cancelMove();
+        if (gameOver || !nextPlayer.isComputer()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No computer move"));
+        }
+        Connect4Variation.Analysis cached = current.analysis;
+        if (cached != null && cached.matches(nextPlayer.getSettings())) { // Pending until played, cancel() stops it like a search
+            showAnalysis(cached.result);
+            pendingMove = CompletableFuture.completedFuture(cached.result.col);
+            pendingStop = new AtomicBoolean();
+            return pendingMove;
+        }
+        Connect4Player player = nextPlayer;
+        Connect4Variation node = current;
+        Connect4BitBoard snapshot = board.getBitBoard().copy();
+        AtomicBoolean stop = new AtomicBoolean();
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        pendingMove = f;
+        pendingStop = stop;
+        searchExecutor.execute(() -> {
+            try {
+                Optional<Integer> col = stop.get() ? Optional.empty() : computeMove(player, node, snapshot, stop);
+                if (col.isPresent()) f.complete(col.get());
+                else f.cancel(false);
+            } catch (RuntimeException e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+
+    // Move of a computer player for the position of a node, the cached analysis of the node if the player has the
+    // settings which produced it, otherwise a search (stored in the node)
+    private Optional<Integer> computeMove(Connect4Player player, Connect4Variation node, Connect4BitBoard board, AtomicBoolean stop) {
+        Connect4EngineSettings settings = player.getSettings();
+        Connect4Variation.Analysis cached = node.analysis;
+        if (cached != null && cached.matches(settings)) {
+            showAnalysis(cached.result);
+            return Optional.of(cached.result.col);
+        }
+        Optional<Connect4SearchResult> s = player.computeMove(board, stop);
+        s.ifPresent(a -> node.analysis = new Connect4Variation.Analysis(settings, a));
+        return s.map(a -> a.col);
+    }
+
+    private void showAnalysis(Connect4SearchResult r) {
+        statusUpdate(r.col + "/" + r.score + ", depth " + r.depth + (r.solved ? ", solved" : ""));
+    }
+
+    // Play a move computed by computerMoveAsync() for next computer player, false if the future was cancelled or
+    // replaced meanwhile (even after it completed), the column belongs to another position then
+    public boolean computerMove(CompletableFuture<Integer> move, int col) {
+        if (move != pendingMove) return false;
+        return computerMove(col);
+    }
+
+    // Play a move for next computer player
+    public boolean computerMove(int col) {
+        if (!gameOver && nextPlayer.isComputer()) {
+            pendingMove = null;
+            pendingStop = null;
+            Connect4Player player = nextPlayer;
+            if (doMove(nextPlayer.getPiece(), col)) {
+                nextPlayer();
+                if (!gameOver) player.ponder(board.getBitBoard().copy(), searchExecutor);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stop a computer move in progress, pondering and hints
+    public boolean cancel() {
+        stopPondering();
+        cancelHints();
+        return cancelMove();
+    }
+
+    // Score every column of the current position for the player to move by a multi-PV analysis in a search thread:
+    // HINT_NONE for a full column, HINT_WIN and -HINT_WIN for a won and a lost game, the evaluation otherwise. Hints
+    // of a position are kept in the variation tree, the analysis is cancelled by moves and cancel().
+    public CompletableFuture<int[]> hintsAsync() {
+        cancelHints();
+        if (gameOver) return CompletableFuture.failedFuture(new IllegalStateException("Game over"));
+        int[] cached = current.hints;
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        if (hintEngine == null) hintEngine = new Connect4Engine(new Connect4EngineSettings().setThreads(Runtime.getRuntime().availableProcessors()));
+        Connect4Engine engine = hintEngine;
+        Connect4Variation node = current;
+        Connect4BitBoard snapshot = board.getBitBoard().copy();
+        AtomicBoolean stop = new AtomicBoolean();
+        hintStop = stop;
+        return CompletableFuture.supplyAsync(() -> {
+            Connect4SearchResult[] r = engine.analyze(snapshot, stop, engine.getSettings().getTimeBudget(), engine.getSettings().getMaxDepth(), 0);
+            if (stop.get()) throw new CancellationException();
+            int[] hints = new int[getCols()];
+            Arrays.fill(hints, HINT_NONE);
+            for (Connect4SearchResult h : r) hints[h.col] = h.score;
+            node.hints = hints;
+            return hints;
+        }, searchExecutor);
+    }
+
+    private void cancelHints() {
+        if (hintStop != null) hintStop.set(true);
+        hintStop = null;
+    }
+
+    // A computed move not played yet is cancelled as well, the move was for this position
+    private boolean cancelMove() {
+        if (pendingMove == null) return false;
+        pendingStop.set(true);
+        pendingMove.cancel(false);
+        pendingMove = null;
+        pendingStop = null;
+        return true;
+    }
+
+    // Undo two moves, or only the last move if a computer move was in progress or not played yet, the moves stay in the variation
+    // tree for redo()
+    public void undo() {
+        if (!cancel()) undoMove();
+        undoMove();
+        updatePlayer();
+        showAnalysis();
+    }
+
+    // Redo two moves taken back by undo(), false if there is nothing to redo
+    public boolean redo() {
+        cancel();
+        if (!redoMove()) return false;
+        redoMove();
+        updatePlayer();
+        showAnalysis();
+        return true;
+    }
+
+    // Take back one move, false at the start position
+    public boolean back() {
+        cancel();
+        if (current == start) return false;
+        undoMove();
+        updatePlayer();
+        showAnalysis();
+        return true;
+    }
+
+    // Redo one move, false if there is nothing to redo
+    public boolean forward() {
+        cancel();
+        if (!redoMove()) return false;
+        updatePlayer();
+        showAnalysis();
+        return true;
+    }
+
+    // Go to the position of a move sequence (e.g. "3345", see getMoves()), only the moves between the common
+    // position and the new one are taken back and played, moves not in the variation tree yet are added to it
+    public void goTo(String moves) {
+        Connect4BitBoard.ofMoves(board.getGeometry(), moves); // Check the moves first
+        cancel();
+        Connect4Variation target = start;
+        int n = 0;
+        for (; n < moves.length(); n++) {
+            Connect4Variation v = target.getVariation(Character.digit(moves.charAt(n), Character.MAX_RADIX));
+            if (v == null) break;
+            target = v;
+        }
+        Connect4Variation common = current.commonAncestor(target);
+        while (current != common) undoMove();
+        replay(common, target);
+        updatePlayer();
+        for (; n < moves.length(); n++) forceMove(Character.digit(moves.charAt(n), Character.MAX_RADIX));
+        showAnalysis();
+    }
+
+    // Moves from the start to the current position, columns from 10 on are letters (a = 10)
+    public String getMoves() {
+        return current.getMoves();
+    }
+
+    // Columns played from the current position before (variations), in the order they were first played
+    public int[] getVariations() {
+        return current.getVariationCols();
+    }
+
+    // Play the moves from a position to one of its successors in the variation tree
+    private void replay(Connect4Variation from, Connect4Variation to) {
+        if (to == from) return;
+        replay(from, to.parent);
+        current.last = to;
+        redoMove();
+    }
+
+    // The player to move at the current position, the player of the last move if the game is over
+    private void updatePlayer() {
+        nextPlayer = (current.ply % 2 == 0) != gameOver ? player1 : player2;
+    }
+
+    private void showAnalysis() {
+        if (gameOver) return; // The result was shown
+        Connect4Variation.Analysis a = current.analysis;
+        if (a != null) showAnalysis(a.result);
+        else statusUpdate("");
+    }
+
+    // Do a move, check and update game status, add it to the variation tree
+    private boolean doMove(Connect4Board.Piece piece, int col) {
+        if (gameOver) return false;
+        if (!board.putPiece(col, piece)) return false;
+        cancelHints();
+        long now = System.nanoTime();
+        Connect4Variation v = current.play(col);
+        v.time = (int) Math.min((now - lastMoveTime) / 1000000, Integer.MAX_VALUE);
+        lastMoveTime = now;
+        moved(piece, v);
+        if (gameOver && recordWriter != null) {
+            record(board.gameWon() ? (piece == Connect4Board.Piece.RED ? Connect4RecordWriter.RED_WINS
+                    : Connect4RecordWriter.YELLOW_WINS) : Connect4RecordWriter.DRAW);
+        }
+        return true;
+    }
+
+    // Redo the move played last from the current position, false if there is none or the game is over
+    private boolean redoMove() {
+        Connect4Variation v = current.last;
+        if (gameOver || v == null) return false;
+        Piece piece = Piece.ofFieldValue(board.getBitBoard().getToMove());
+        board.put_(v.col, piece.getFieldValue());
+        lastMoveTime = System.nanoTime();
+        moved(piece, v);
+        return true;
+    }
+
+    // A move was put on the board, update the display and the game status
+    private void moved(Connect4Board.Piece piece, Connect4Variation v) {
+        if (verbose) System.out.println(piece.name() + ":" + v.col);
+        current = v;
+        boardUpdate(piece, true, false, v.col, board.getColPieces(v.col) - 1);
+        if (board.gameWon()) {
+            statusUpdate(piece.name() + " wins!");
+            board.processWinningLine((c, r) -> { boardUpdate(Connect4Board.Piece.EMPTY, false, true, c, r); });
+            gameOver = true;
+        } else if (board.gameOver()) {
+            statusUpdate("Game over!");
+            gameOver = true;
+        }
+        if (gameOver) stopPondering();
+    }
+
+    private void stopPondering() {
+        player1.stopPondering();
+        player2.stopPondering();
+    }
+
+    private void record(int result) {
+        int[] moves = new int[current.ply], times = new int[current.ply];
+        for (Connect4Variation v = current; v != start; v = v.parent) {
+            moves[v.ply - 1] = v.col;
+            times[v.ply - 1] = v.time;
+        }
+        Connect4EngineSettings red = player1.getSettings(), yellow = player2.getSettings();
+        try {
+            recordWriter.write(board.getGeometry(), result, red != null ? red.toString() : null, yellow != null ? yellow.toString() : null,
+                    moves, times, moves.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Undo the last move, the move stays the variation followed by redo
+    private void undoMove() {
+
+        if (current != start) {
+            if (gameOver) {
+                board.processWinningLine( (col,row) -> { boardUpdate(board.getPiece(col, row), false, false, col, row); } ); // Remove winning line markers
+                gameOver = false;
+            }
+            if (verbose) System.out.println("History: " + current.getMoves());
+            int c = current.col;
+            int r = board.getColPieces(c) - 1;
+            if (verbose) System.out.println("Undo: " + board.getPiece(c, r) + ":" + c);
+            board.removePiece(c);
+            current = current.parent;
+            lastMoveTime = System.nanoTime();
+            boardUpdate(Connect4Board.Piece.EMPTY, false, false, c, r);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package connect4game;
+// Board dimensions and the tables derived from them, one shared instance per size
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class Connect4Geometry {
+
+    final static int DEFAULT_COLS = 7;
+    final static int DEFAULT_ROWS = 6;
+
+    private final static ConcurrentHashMap<Integer, Connect4Geometry> geometries = new ConcurrentHashMap<>();
+    final static Connect4Geometry STANDARD = of(DEFAULT_COLS, DEFAULT_ROWS);
+
+    // Bit layout: column c uses bits c*h1 ... c*h1+rows-1, bit c*h1+rows is always empty (separates columns). Sizes
+    // without room for the empty bits (cols * (rows + 1) > 64, e.g. 9x7) are packed: h1 = rows, the shifts of the
+    // line checks are masked at the top and bottom row, and there is no exact 64 bit position key (no book and
+    // tablebase)
+    final int cols;
+    final int rows;
+    final int h1;
+    final int cells;
+    final boolean packed;
+    final long bottom; // Lowest bit of every column
+    final long top; // Highest field of every column
+    final long board; // All fields
+    final long oddRows; // Fields of the rows 1, 3, 5... counted from the bottom (row index 0, 2, 4...)
+
+    final int[] colOrder; // Column priority, center first (helps alpha/beta)
+    final long[] lines; // All winning line combinations, same order as Connect4Board.buildLines
+    final int[][] cellLines; // Indices of all lines through a bit position
+    final long[][] zobrist; // Random keys per piece (red, yellow) and bit position
+    final int[] mirrorBits; // Bit position mirrored at the middle column
+
+    private Connect4Geometry(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.packed = cols * (rows + 1) > 64;
+        this.h1 = packed ? rows : rows + 1;
+        this.cells = cols * rows;
+        long b = 0;
+        for (int c = 0; c < cols; c++) b |= bottomMask(c);
+        this.bottom = b;
+        this.top = bottom << (rows - 1);
+        this.board = bottom * ((1L << rows) - 1);
+        this.oddRows = bottom * (0x5555555555555555L & ((1L << rows) - 1));
+        this.colOrder = columnOrder(cols);
+        this.lines = lineMasks();
+        this.cellLines = cellLines();
+        this.zobrist = zobristKeys();
+        this.mirrorBits = new int[cols * h1];
+        for (int i = 0; i < mirrorBits.length; i++) mirrorBits[i] = mirrorBit(i);
+    }
+
+    // Get the geometry of a board size, the number of fields is limited to 64
+    static Connect4Geometry of(int cols, int rows) {
+        if (cols < 4 || rows < 4 || cols * rows > 64 || cols > 15 || rows > 15) {
+            throw new IllegalArgumentException("Board size " + cols + "x" + rows + " not supported, at most 15 columns and rows, columns * rows <= 64");
+        }
+        return geometries.computeIfAbsent(cols * 100 + rows, k -> new Connect4Geometry(cols, rows));
+    }
+
+    // Parse a board size like "7x6"
+    static Connect4Geometry parse(String s) {
+        String[] p = s.split("x");
+        if (p.length != 2) throw new IllegalArgumentException("Board size " + s);
+        return of(Integer.parseInt(p[0].trim()), Integer.parseInt(p[1].trim()));
+    }
+
+    long bottomMask(int col) {
+        return 1L << (col * h1);
+    }
+
+    long columnMask(int col) {
+        return ((1L << rows) - 1) << (col * h1);
+    }
+
+    long topMask(int col) {
+        return 1L << (rows - 1 + col * h1);
+    }
+
+    long cellMask(int col, int row) {
+        return 1L << (col * h1 + row);
+    }
+
+    // Bit position of the field mirrored at the middle column
+    int mirrorBit(int bit) {
+        return (cols - 1 - bit / h1) * h1 + bit % h1;
+    }
+
+    int mirrorCol(int col) {
+        return cols - 1 - col;
+    }
+
+    // Mirror a mask at the middle column
+    long mirror(long m) {
+        long r = 0;
+        long col = (1L << h1) - 1;
+        for (int c = 0; c < cols; c++) {
+            r |= ((m >>> (c * h1)) & col) << ((cols - 1 - c) * h1);
+        }
+        return r;
+    }
+
+    // Check the exact position keys (own + all) are available: the empty bits above the columns are needed
+    void checkPositionKeys() {
+        if (packed) throw new IllegalArgumentException("Board size " + this + " not supported, columns * (rows + 1) must be <= 64");
+    }
+
+    // Fields of the next piece in every column which is not full, all + bottom carries from a full column into the
+    // next one when packed
+    long playable(long all) {
+        return packed ? (((all & ~top) << 1) | bottom) & ~all : (all + bottom) & board;
+    }
+
+    // Check 4 in a line by shifting: vertical, horizontal and both diagonals
+    boolean isWin(long p) {
+        if (packed) return isWinPacked(p);
+        long m = p & (p >>> 1);
+        if ((m & (m >>> 2)) != 0) return true;
+        m = p & (p >>> h1);
+        if ((m & (m >>> (2 * h1))) != 0) return true;
+        m = p & (p >>> (h1 + 1));
+        if ((m & (m >>> (2 * (h1 + 1)))) != 0) return true;
+        m = p & (p >>> (h1 - 1));
+        return (m & (m >>> (2 * (h1 - 1)))) != 0;
+    }
+
+    // Empty fields which complete a line of 4 for the pieces p
+    long winningPositions(long p, long all) {
+        if (packed) return winningPositionsPacked(p, all);
+        // Vertical
+        long r = (p << 1) & (p << 2) & (p << 3);
+        // Horizontal and both diagonals
+        for (int d = h1 - 1; d <= h1 + 1; d++) {
+            long q = (p << d) & (p << 2 * d);
+            r |= q & (p << 3 * d);
+            r |= q & (p >>> d);
+            q = (p >>> d) & (p >>> 2 * d);
+            r |= q & (p << d);
+            r |= q & (p >>> 3 * d);
+        }
+        return r & (board ^ all);
+    }
+
+    // Packed layout: one step up (d = 1), right (h1), right up (h1 + 1) or right down (h1 - 1), pieces which would
+    // leave the board at the top or bottom row are dropped instead of wrapping into the next column
+    private long up(long p, int d) {
+        return d == h1 - 1 ? (p & ~bottom) << d : d == h1 ? p << d : (p & ~top) << d;
+    }
+
+    // One step back, the opposite direction of up
+    private long down(long p, int d) {
+        return d == h1 - 1 ? (p & ~top) >>> d : d == h1 ? p >>> d : (p & ~bottom) >>> d;
+    }
+
+    private boolean isWinPacked(long p) {
+        for (int d : new int[] { 1, h1 - 1, h1, h1 + 1 }) {
+            long m = p & down(p, d);
+            if ((m & down(down(m, d), d)) != 0) return true;
+        }
+        return false;
+    }
+
+    private long winningPositionsPacked(long p, long all) {
+        long u1 = up(p, 1), u2 = up(u1, 1);
+        long r = u1 & u2 & up(u2, 1);
+        for (int d = h1 - 1; d <= h1 + 1; d++) {
+            u1 = up(p, d);
+            u2 = up(u1, d);
+            long u3 = up(u2, d), d1 = down(p, d), d2 = down(d1, d), d3 = down(d2, d);
+            r |= u1 & u2 & (u3 | d1);
+            r |= d1 & d2 & (u1 | d3);
+        }
+        return r & (board ^ all);
+    }
+
+    // Center out, right first: 3, 4, 2, 5, 1, 6, 0 for 7 columns, 4, 3, 5, 2, 6, 1, 7, 0 for 8
+    private static int[] columnOrder(int cols) {
+        int[] o = new int[cols];
+        for (int i = 0, c = cols / 2; i < cols; i++) {
+            o[i] = c;
+            c = cols - 1 - c + (2 * c > cols - 1 ? 0 : 1); // Mirror, then one step right of the mirrored column
+        }
+        return o;
+    }
+
+    private long lineMask(int col, int row, int colo, int rowo) {
+        long m = 0;
+        for (int i = 0; i < 4; i++) m |= cellMask(col + i * colo, row + i * rowo);
+        return m;
+    }
+
+    private long[] lineMasks() {
+        long[] l = new long[4 * cells];
+        int n = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (r + 4 <= rows) l[n++] = lineMask(c, r, 0, 1); // Vertical
+                if (c + 4 <= cols) l[n++] = lineMask(c, r, 1, 0); // Horizontal
+                if (r + 4 <= rows && c + 4 <= cols) l[n++] = lineMask(c, r, 1, 1); // Diagonal
+                if (r + 4 <= rows && c - 3 >= 0) l[n++] = lineMask(c, r, -1, 1);
+            }
+        }
+        return Arrays.copyOf(l, n);
+    }
+
+    // Keys differ by size, a transposition table shared by several sizes (e.g. Connect4Service) gets no false hits
+    private long[][] zobristKeys() {
+        Random rnd = new Random(cols * 64L + rows);
+        long[][] z = new long[2][cols * h1];
+        for (int i = 0; i < z.length; i++) {
+            for (int b = 0; b < z[i].length; b++) z[i][b] = rnd.nextLong();
+        }
+        return z;
+    }
+
+    private int[][] cellLines() {
+        int[][] cl = new int[cols * h1][];
+        for (int b = 0; b < cl.length; b++) {
+            int n = 0;
+            int[] l = new int[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                if ((lines[i] & (1L << b)) != 0) l[n++] = i;
+            }
+            cl[b] = Arrays.copyOf(l, n);
+        }
+        return cl;
+    }
+
+    @Override
+    public String toString() {
+        return cols + "x" + rows;
+    }
+}
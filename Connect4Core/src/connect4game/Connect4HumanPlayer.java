@@ -1,6 +1,7 @@
 package connect4game;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 // A human player
 public class Connect4HumanPlayer extends Connect4Player {
@@ -10,7 +11,7 @@ public class Connect4HumanPlayer extends Connect4Player {
     }
     
     @Override
-    Optional<Integer> computeMove(Connect4Board board) {
+    Optional<Connect4SearchResult> computeMove(Connect4BitBoard board, AtomicBoolean stop) {
         return Optional.empty();
     }
 
@@ -0,0 +1,73 @@
+package connect4game;
+// Load test client of the analysis service: concurrent clients send best move requests for random positions and
+// report the latency percentiles, the throughput and the responses by HTTP status
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+final class Connect4LoadTest {
+
+    private final String url; // Service base URL, e.g. http://localhost:4444
+    private final long time; // Search time per request in ms
+
+    Connect4LoadTest(String url, long time) {
+        this.url = url;
+        this.time = time;
+    }
+
+    // Send requests with every client (thread), requests per client
+    void run(int clients, int requests, long seed) throws InterruptedException {
+        if (clients < 1 || requests < 1) throw new IllegalArgumentException("clients " + clients + ", requests " + requests);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long[][] latencies = new long[clients][requests]; // ns, per client
+        Map<Integer, Integer> status = new TreeMap<>(); // Responses per HTTP status, -1 is an I/O error
+        Thread[] threads = new Thread[clients];
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            final int client = i;
+            Random rnd = new Random(seed + i);
+            threads[i] = new Thread(() -> {
+                for (int n = 0; n < requests; n++) {
+                    String moves = Connect4Tools.randomPosition(rnd, rnd.nextInt(16));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/bestmove?moves=" + moves + "&time=" + time))
+                            .timeout(Duration.ofSeconds(60)).build();
+                    long t = System.nanoTime();
+                    int s;
+                    try {
+                        s = http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+                    } catch (IOException e) {
+                        s = -1;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[client][n] = System.nanoTime() - t;
+                    synchronized (status) {
+                        status.merge(s, 1, Integer::sum);
+                    }
+                }
+            }, "Connect4 load test " + (i + 1));
+            threads[i].start();
+        }
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d clients, %d requests, %dms search time%n", clients, all.length, time);
+        System.out.printf("Latency p50 %.1fms, p99 %.1fms, max %.1fms%n", percentile(all, 50) / 1e6, percentile(all, 99) / 1e6,
+                all[all.length - 1] / 1e6);
+        System.out.printf("Throughput %.1f requests/s%n", all.length / (elapsed / 1e9));
+        System.out.println("Responses by status: " + status);
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * p / 100.0) - 1)];
+    }
+}
@@ -0,0 +1,45 @@
+package connect4game;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The Connect4 player
+abstract class Connect4Player {
+
+    final String name;
+    final Connect4Board.Piece piece;
+    
+    public Connect4Player(Connect4Board.Piece piece, String name) {
+        this.piece = piece;
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Connect4Board.Piece getPiece() {
+        return piece;
+    }
+
+    abstract boolean isComputer();
+
+    // Engine settings of a computer player, null for a human player
+    Connect4EngineSettings getSettings() {
+        return null;
+    }
+
+    // Compute a move for a board snapshot, may run in a search thread, setting stop ends the computation early, the
+    // game keeps the search result as the analysis of the position
+    abstract Optional<Connect4SearchResult> computeMove(Connect4BitBoard board, AtomicBoolean stop);
+
+    // The own move was played, the opponent's turn may be used (board is a snapshot)
+    void ponder(Connect4BitBoard board, Executor executor) {
+    }
+
+    // Stop pondering, returns immediately
+    void stopPondering() {
+    }
+    
+} // Connect4Player
@@ -0,0 +1,126 @@
+package connect4game;
+// Reader of game record files (see Connect4RecordWriter): the file is memory mapped in segments, next() moves a
+// cursor from game to game and the accessors decode the current game from the buffer, nothing is allocated per game
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class Connect4RecordReader implements Closeable {
+
+    private final static long SEGMENT = 1L << 30; // Bytes mapped at a time, blocks never cross a segment end
+
+    private final FileChannel channel;
+    private final long size;
+    private final Map<Integer, String> settings = new HashMap<>(); // Settings text by id, the last settings block of an id
+    private MappedByteBuffer buffer;
+    private long base; // File position of the buffer
+    private int next; // Buffer position of the next block
+
+    // Current game: buffer positions of the times and the moves
+    private int cols, rows, result, plies, bits, red, yellow, times, moves;
+
+    public Connect4RecordReader(String file) throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+        if (buffer.limit() < Connect4RecordWriter.HEADER_BYTES || buffer.getInt(0) != Connect4RecordWriter.MAGIC
+                || buffer.getInt(4) != Connect4RecordWriter.VERSION) {
+            channel.close();
+            throw new IOException("Not a Connect4 record file (version " + Connect4RecordWriter.VERSION + "): " + file);
+        }
+        next = Connect4RecordWriter.HEADER_BYTES;
+    }
+
+    private void map(long position) throws IOException {
+        base = position;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT, size - position));
+    }
+
+    // Move to the next game, false at the end of the file (an incomplete last block is ignored)
+    public boolean next() throws IOException {
+        while (true) {
+            if (next + 2 > buffer.limit() || next + 2 + buffer.getChar(next) > buffer.limit()) { // Block beyond the segment
+                if (base + next >= size || buffer.limit() < SEGMENT) return false;
+                map(base + next);
+                next = 0;
+                continue;
+            }
+            int length = buffer.getChar(next);
+            int p = next + 2;
+            next = p + length;
+            if (buffer.get(p) == Connect4RecordWriter.KIND_SETTINGS) {
+                byte[] text = new byte[length - 5];
+                buffer.get(p + 5, text);
+                settings.put(buffer.getInt(p + 1), new String(text, StandardCharsets.UTF_8));
+            } else if (buffer.get(p) == Connect4RecordWriter.KIND_GAME) {
+                int dimensions = buffer.get(p + 1) & 0xFF;
+                cols = dimensions >> 4;
+                rows = dimensions & 15;
+                result = buffer.get(p + 2);
+                plies = buffer.get(p + 3) & 0xFF;
+                red = buffer.getInt(p + 4);
+                yellow = buffer.getInt(p + 8);
+                times = p + Connect4RecordWriter.GAME_BYTES;
+                moves = times + 2 * plies;
+                bits = Connect4RecordWriter.bitsPerMove(cols);
+                return true;
+            } // Unknown blocks of later versions are skipped
+        }
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Connect4RecordWriter.UNFINISHED, RED_WINS, YELLOW_WINS or DRAW
+    public int getResult() {
+        return result;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    // Column of a move, 0 is the first move (red)
+    public int getMove(int ply) {
+        int b = ply * bits;
+        int v = (buffer.get(moves + (b >> 3)) & 0xFF) >> (b & 7);
+        if ((b & 7) + bits > 8) v |= (buffer.get(moves + (b >> 3) + 1) & 0xFF) << (8 - (b & 7));
+        return v & ((1 << bits) - 1);
+    }
+
+    // Time of a move in ms
+    public int getTime(int ply) {
+        return buffer.getChar(times + 2 * ply);
+    }
+
+    // Engine settings of red, null for a human player
+    public String getSettingsRed() {
+        return settings.get(red);
+    }
+
+    public String getSettingsYellow() {
+        return settings.get(yellow);
+    }
+
+    // File position of the next block, the bytes read so far
+    public long getPosition() {
+        return base + next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
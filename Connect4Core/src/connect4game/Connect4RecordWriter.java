@@ -0,0 +1,109 @@
+package connect4game;
+// Game records: a compact binary file of length prefixed blocks, appended through a buffer, read by
+// Connect4RecordReader
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class Connect4RecordWriter implements Closeable {
+
+    // File format: header (magic, version), then blocks: length (unsigned short, bytes after the length), kind (byte)
+    // Settings block: id (int, numbered by the writer, 0 is a human player), settings text (UTF-8, rest of the block),
+    // the block defines the id for the games after it, a later writer appending to the file defines its ids again
+    // Game block: size (byte, columns << 4 | rows), result (byte), plies (byte), settings ids of red and yellow (int),
+    // time per move in ms (unsigned short each, saturated), moves packed with 3 bits each (4 bits above 8 columns),
+    // starting at the lowest bit of the first byte
+    final static int MAGIC = 0x43344752; // "C4GR"
+    final static int VERSION = 1;
+    final static int HEADER_BYTES = 8;
+    final static int KIND_SETTINGS = 1, KIND_GAME = 2;
+    final static int GAME_BYTES = 12; // Game block without times and moves, after the length
+
+    // Game results
+    public final static int UNFINISHED = 0, RED_WINS = 1, YELLOW_WINS = 2, DRAW = 3;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> settingsIds = new HashMap<>(); // Settings written by this writer, no hash collisions
+    private byte[] packed = new byte[32];
+
+    // Append to a record file, a new file gets the header, an existing file must have the header of this version
+    public Connect4RecordWriter(String file) throws IOException {
+        Path path = Paths.get(file);
+        boolean empty = !Files.exists(path) || Files.size(path) == 0;
+        if (!empty) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                if (Files.size(path) < HEADER_BYTES || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a Connect4 record file (version " + VERSION + "): " + file);
+                }
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+        if (empty) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+    }
+
+    static int bitsPerMove(int cols) {
+        return cols <= 8 ? 3 : 4;
+    }
+
+    // Append a game, settings null is a human player, times in ms per move
+    synchronized void write(Connect4Geometry g, int result, String settingsRed, String settingsYellow, int[] moves, int[] times, int plies) throws IOException {
+        int red = writeSettings(settingsRed), yellow = writeSettings(settingsYellow);
+        int bits = bitsPerMove(g.cols);
+        int n = (plies * bits + 7) / 8;
+        if (packed.length < n) packed = new byte[n];
+        Arrays.fill(packed, 0, n, (byte) 0);
+        for (int i = 0; i < plies; i++) {
+            int b = i * bits;
+            int v = moves[i] << (b & 7);
+            packed[b >> 3] |= v;
+            if ((b & 7) + bits > 8) packed[(b >> 3) + 1] |= v >> 8;
+        }
+        out.writeShort(GAME_BYTES + 2 * plies + n);
+        out.writeByte(KIND_GAME);
+        out.writeByte(g.cols << 4 | g.rows);
+        out.writeByte(result);
+        out.writeByte(plies);
+        out.writeInt(red);
+        out.writeInt(yellow);
+        for (int i = 0; i < plies; i++) out.writeShort(Math.min(Math.max(times[i], 0), 0xFFFF));
+        out.write(packed, 0, n);
+    }
+
+    // Settings id of a player, 0 for a human player (null), the settings block is written with the first use
+    private int writeSettings(String settings) throws IOException {
+        if (settings == null) return 0;
+        Integer known = settingsIds.get(settings);
+        if (known != null) return known;
+        int id = settingsIds.size() + 1;
+        settingsIds.put(settings, id);
+        byte[] text = settings.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(5 + text.length);
+        out.writeByte(KIND_SETTINGS);
+        out.writeInt(id);
+        out.write(text);
+        return id;
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
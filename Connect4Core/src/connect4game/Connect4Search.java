@@ -0,0 +1,376 @@
+package connect4game;
+// Iterative deepening minmax search of one worker, all workers of an engine share the transposition table
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class Connect4Search {
+
+    final static int WIN_SCORE  = 1000;  // Score (Stellungsbewertung)
+    private final static int TIME_CHECK_NODES = 1023; // Check the clock every 1024 nodes
+    private final static int HISTORY_MAX = 1 << 24; // History only orders moves with the same distance to the center
+    private final static int INFINITE = 1000000; // Window bound beyond all scores
+    private final static int ASPIRATION_WINDOW = 4; // Initial half width of the aspiration window, widened by 4x on failure
+
+    private final Connect4TranspositionTable tt;
+    private final boolean useThreats, useKillers, useHistory; // Move ordering heuristics
+    private final Connect4EngineSettings.SearchMode mode;
+    private final boolean pvs; // Null window search of all but the first move
+    private final boolean threatEval; // Connect4Evaluator at the horizon
+    private final Connect4Tablebase tablebase; // Exact results of late positions or null
+
+    // Search state
+    private AtomicBoolean stop; // Set to stop all workers of a search
+    private int maxDepth; // Search depth of the current iteration
+    private long deadline; // System.nanoTime() when the current search has to stop
+    private boolean aborted; // The current iteration ran out of time or was stopped
+    private long nodes;
+    private long evals, expanded, cutoffs, firstCutoffs, ttProbes, ttHits, ttCutoffs, tablebaseHits; // Statistics
+    private int bestCol; // Best move of the current iteration
+    private Connect4Geometry g; // Board size of the tables below
+    private int[] colOrder; // Column priority, center first (helps alpha/beta)
+    private int[][] moves; // Move list per ply
+    private int[][] pv; // Principal variation per ply
+    private int[] pvLength;
+    private int[] prevPv = new int[0]; // Best line of the last finished iteration, searched first in the next one
+    private boolean followPv;
+    private int[][] killers; // Last two fields (bits) with a cutoff per ply, -1 is none
+    private int[][] history; // Cutoff weights per side and field (bit)
+    private int[] sortKeys;
+
+    // Result of the last finished iteration
+    private int col, score, depth;
+    private int score2; // Score of the iteration before, the same side makes the last move (scores alternate)
+
+    Connect4Search(Connect4TranspositionTable tt, Connect4EngineSettings settings) {
+        this.tt = tt;
+        this.useThreats = settings.isThreats();
+        this.useKillers = settings.isKillers();
+        this.useHistory = settings.isHistory();
+        this.mode = settings.getSearchMode();
+        this.threatEval = settings.getEvaluation() == Connect4EngineSettings.Evaluation.THREATS;
+        this.pvs = mode == Connect4EngineSettings.SearchMode.PVS || mode == Connect4EngineSettings.SearchMode.ASPIRATION;
+        this.tablebase = settings.getTablebase() != null ? Connect4Tablebase.open(settings.getTablebase()) : null;
+    }
+
+    // Iterative deepening: search depth startDepth, startDepth+1... up to limit until the deadline is reached or
+    // stop is set, board is owned by this worker, progress (may be null) is called after every finished iteration
+    void run(Connect4BitBoard board, int startDepth, int limit, long deadline, AtomicBoolean stop, Connect4Engine.Progress progress) {
+        start(board.getGeometry(), deadline, stop);
+        for (int d = Math.min(startDepth, limit); d <= limit; d++) {
+            maxDepth = d;
+            int s = searchRoot(board, d > startDepth + 1 && col >= 0);
+            if (aborted) break;
+            if (s == -WIN_SCORE && col >= 0) { // Keep the move of the last iteration, human players might make faults
+                score = s;
+                break;
+            }
+            col = bestCol;
+            score2 = score;
+            score = s;
+            depth = d;
+            prevPv = Arrays.copyOf(pv[0], pvLength[0]);
+            if (progress != null) progress.update(d, col, s);
+            if (s == +WIN_SCORE) break;
+        }
+    }
+
+    // Start a search: size the tables, reset the statistics and the result
+    void start(Connect4Geometry geometry, long deadline, AtomicBoolean stop) {
+        if (geometry != g) allocate(geometry);
+        this.deadline = deadline;
+        this.stop = stop;
+        aborted = false;
+        nodes = evals = expanded = cutoffs = firstCutoffs = ttProbes = ttHits = ttCutoffs = tablebaseHits = 0;
+        prevPv = new int[0];
+        for (int[] k : killers) k[0] = k[1] = -1; // The plies of the last search do not fit anymore
+        for (int[] h : history) for (int i = 0; i < h.length; i++) h[i] >>= 1; // Age the history of the last search
+        col = -1;
+        score = score2 = 0;
+        depth = 0;
+    }
+
+    // Multi-PV: exact score of one root move after start(), the position after the move searched with a full window
+    // to depth - 1, false if the search was stopped; the result is in getCol(), getScore() and getPv()
+    boolean searchMove(Connect4BitBoard board, int c, int depth) {
+        maxDepth = depth;
+        followPv = false;
+        board.put_(c);
+        int s = -minmax(board, 1, -INFINITE, +INFINITE);
+        board.remove_(c);
+        if (aborted) return false;
+        col = c;
+        score = s;
+        this.depth = depth;
+        prevPv = Arrays.copyOf(pv[1], pvLength[1]);
+        prevPv[0] = c;
+        return true;
+    }
+
+    // Search one iteration with the root algorithm of the mode, guess: the score of the last iteration is known
+    private int searchRoot(Connect4BitBoard board, boolean guess) {
+        switch (mode) {
+        case ASPIRATION: // Window around the score of the last iteration, widened on failure
+            if (!guess) return searchWindow(board, -INFINITE, +INFINITE);
+            int w = ASPIRATION_WINDOW;
+            int alpha = score2 - w, beta = score2 + w;
+            while (true) {
+                int s = searchWindow(board, alpha, beta);
+                if (aborted || (s > alpha && s < beta)) return s;
+                w *= 4;
+                if (s <= alpha) alpha = Math.max(s - w, -INFINITE);
+                else beta = Math.min(s + w, +INFINITE);
+            }
+        case MTDF: // Null window searches converging on the score, the transposition table keeps the bounds
+            int s = guess ? score2 : 0;
+            int lower = -INFINITE, upper = +INFINITE;
+            int c = -1;
+            int[] line = null;
+            while (lower < upper) {
+                int b = s == lower ? s + 1 : s;
+                s = searchWindow(board, b - 1, b);
+                if (aborted) return 0;
+                if (s < b) {
+                    upper = s;
+                } else {
+                    lower = s;
+                    c = bestCol; // Only a fail high proves the move
+                    line = Arrays.copyOf(pv[0], pvLength[0]);
+                }
+            }
+            if (c >= 0) { // Restore the move and line of the last fail high, the last pass may have failed low
+                bestCol = c;
+                System.arraycopy(line, 0, pv[0], 0, line.length);
+                pvLength[0] = line.length;
+            }
+            return s;
+        default:
+            return searchWindow(board, -INFINITE, +INFINITE);
+        }
+    }
+
+    private int searchWindow(Connect4BitBoard board, int alpha, int beta) {
+        followPv = true;
+        return minmax(board, 0, alpha, beta);
+    }
+
+    // Size the per ply and per field tables for a board size
+    private void allocate(Connect4Geometry g) {
+        this.g = g;
+        colOrder = g.colOrder;
+        moves = new int[g.cells + 1][g.cols];
+        pv = new int[g.cells + 1][g.cells + 1];
+        pvLength = new int[g.cells + 1];
+        killers = new int[g.cells + 1][2];
+        history = new int[2][g.cols * g.h1];
+        sortKeys = new int[g.cols];
+    }
+
+    int getCol() {
+        return col;
+    }
+
+    int getScore() {
+        return score;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    int[] getPv() {
+        return prevPv;
+    }
+
+    // Add the statistics of the last run to the sums s (see Connect4SearchStats)
+    void addStats(long[] s) {
+        s[0] += nodes;
+        s[1] += evals;
+        s[2] += expanded;
+        s[3] += cutoffs;
+        s[4] += firstCutoffs;
+        s[5] += ttProbes;
+        s[6] += ttHits;
+        s[7] += ttCutoffs;
+        s[8] += tablebaseHits;
+    }
+
+    // Minmax algo with alpha/beta pruning (thanks c't), scores are seen from the player to move,
+    // the best move on level 0 is stored in bestCol
+    private int minmax(Connect4BitBoard board, int depth, int alpha, int beta) {
+
+        pvLength[depth] = depth;
+        if ((++nodes & TIME_CHECK_NODES) == 0 && maxDepth > 1 && (stop.get() || System.nanoTime() > deadline)) aborted = true;
+        if (aborted) return 0;
+
+        evals++;
+        int s = getBoardScore(board);
+        if (board.getTotPieces() >= g.cells) {
+            assert(depth!=0);
+            if (depth==0) throw new IllegalArgumentException();
+            return s;
+        }
+        if (s == +WIN_SCORE || s == -WIN_SCORE) return s; // won
+        if (tablebase != null && depth > 0) { // Exact result of a late position, nothing below is searched
+            int v = tablebase.probe(board);
+            if (v != Connect4Tablebase.UNKNOWN) {
+                tablebaseHits++;
+                return solvedScore(v);
+            }
+        }
+        if (depth >= maxDepth) return threatEval ? Connect4Evaluator.eval(board) : s; // max depth reached
+
+        // Transposition table lookup
+        long key = board.getKey();
+        boolean mirrored = board.isKeyMirrored();
+        int alpha0 = alpha;
+        int c_tt = -1;
+        long e = tt.probe(key);
+        ttProbes++;
+        if (e != Connect4TranspositionTable.NONE) {
+            ttHits++;
+            c_tt = Connect4TranspositionTable.getCol(e);
+            if (c_tt >= 0 && mirrored) c_tt = g.mirrorCol(c_tt);
+            if (depth > 0 && Connect4TranspositionTable.getDepth(e) >= maxDepth - depth) {
+                int s_tt = Connect4TranspositionTable.getScore(e);
+                switch (Connect4TranspositionTable.getBound(e)) {
+                case Connect4TranspositionTable.EXACT:
+                    ttCutoffs++;
+                    return s_tt;
+                case Connect4TranspositionTable.LOWER:
+                    if (s_tt >= beta) {
+                        ttCutoffs++;
+                        return s_tt;
+                    }
+                    break;
+                default:
+                    if (s_tt <= alpha) {
+                        ttCutoffs++;
+                        return s_tt;
+                    }
+                }
+            }
+        }
+
+        // The best line of the last iteration is searched first, then the transposition table move
+        int c_pv = -1;
+        if (followPv && depth < prevPv.length) c_pv = prevPv[depth];
+        else followPv = false;
+        int n = orderMoves(board, depth, c_pv, c_tt);
+        expanded++;
+
+        int s_max = -INFINITE;
+        int c_max = -1;
+        for (int i = 0; i < n; i++) {
+            int c = moves[depth][i];
+            board.put_(c);
+            if (i == 0 || !pvs) {
+                s = -minmax(board, depth + 1, -beta, -alpha);
+            } else { // Prove that the move is not better than the first one with a null window, search again if it is
+                s = -minmax(board, depth + 1, -alpha - 1, -alpha);
+                if (s > alpha && s < beta && !aborted) s = -minmax(board, depth + 1, -beta, -alpha);
+            }
+            board.remove_(c);
+            followPv = false;
+            if (aborted) return 0;
+            if (s > s_max) {
+                s_max = s;
+                c_max = c;
+            }
+            if (s > alpha) {
+                alpha = s;
+                updatePv(depth, c);
+                if (alpha >= beta) { // A score equal to beta is already refuted by the parent (it needs more than -beta), the
+                                     // other moves can not change its choice; never at the root with a full window
+                    cutoffs++;
+                    if (i == 0) firstCutoffs++;
+                    updateOrdering(board, depth, c);
+                    break;
+                }
+            }
+        }
+
+        int bound = s_max <= alpha0 ? Connect4TranspositionTable.UPPER
+                : s_max >= beta ? Connect4TranspositionTable.LOWER : Connect4TranspositionTable.EXACT;
+        tt.store(key, maxDepth - depth, bound, s_max, mirrored ? g.mirrorCol(c_max) : c_max);
+
+        if (depth == 0) bestCol = c_max;
+        return s_max;
+    }
+
+    // Fill the move list of a ply with all legal moves: immediate wins and forced blocks, c1 and c2 (if >=0), the
+    // killers of the ply, then in column priority order, by history within the same distance to the center
+    private int orderMoves(Connect4BitBoard board, int depth, int c1, int c2) {
+        int[] m = moves[depth];
+        int[] keys = sortKeys;
+        long own = board.getOwn(), all = board.getAll();
+        long wins = 0, blocks = 0;
+        if (useThreats) {
+            wins = g.winningPositions(own, all);
+            blocks = g.winningPositions(own ^ all, all);
+        }
+        int[] k = killers[depth];
+        int[] h = history[board.getToMove() > 0 ? 0 : 1];
+        int n = 0;
+        for (int c : colOrder) {
+            if (!board.canPlay(c)) continue;
+            long bit = board.moveMask(c);
+            int cell = Long.numberOfTrailingZeros(bit);
+            int key;
+            if ((wins & bit) != 0) key = 6;
+            else if ((blocks & bit) != 0) key = 5;
+            else if (c == c1) key = 4;
+            else if (c == c2) key = 3;
+            else if (useKillers && cell == k[0]) key = 2;
+            else if (useKillers && cell == k[1]) key = 1;
+            else if (useHistory) key = h[cell] - HISTORY_MAX * (Math.abs(2 * c - g.cols + 1) + 1);
+            else key = -1; // Equal keys keep the column priority
+            int j = n++;
+            while (j > 0 && keys[j - 1] < key) {
+                m[j] = m[j - 1];
+                keys[j] = keys[j - 1];
+                j--;
+            }
+            m[j] = c;
+            keys[j] = key;
+        }
+        return n;
+    }
+
+    // A move caused a beta cutoff: make it the first killer of the ply and raise its history by the remaining depth
+    private void updateOrdering(Connect4BitBoard board, int depth, int c) {
+        int i = c * g.h1 + board.getColPieces(c);
+        if (useKillers && killers[depth][0] != i) {
+            killers[depth][1] = killers[depth][0];
+            killers[depth][0] = i;
+        }
+        if (useHistory) {
+            int[] h = history[board.getToMove() > 0 ? 0 : 1];
+            h[i] = Math.min(h[i] + (maxDepth - depth) * (maxDepth - depth), HISTORY_MAX - 1);
+        }
+    }
+
+    // The principal variation of a ply is its best move followed by the principal variation of the next ply
+    private void updatePv(int depth, int c) {
+        pv[depth][depth] = c;
+        int n = Math.max(depth + 1, pvLength[depth + 1]);
+        System.arraycopy(pv[depth + 1], depth + 1, pv[depth], depth + 1, n - depth - 1);
+        pvLength[depth] = n;
+    }
+
+    // Search score of an exact solver score (see Connect4Solver)
+    static int solvedScore(int solverScore) {
+        return solverScore > 0 ? WIN_SCORE : solverScore < 0 ? -WIN_SCORE : 0;
+    }
+
+    // Get the current board score for the player to move, -1000 given for a winning combination of the opponent,
+    // player1 = -player2 score
+    static int getBoardScore(Connect4BitBoard board) {
+        if (board.won()) return -WIN_SCORE;
+        return board.eval();
+    }
+}
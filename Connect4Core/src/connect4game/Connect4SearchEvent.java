@@ -0,0 +1,40 @@
+package connect4game;
+// JFR event of an engine search, recorded with -XX:StartFlightRecording or JDK Mission Control
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+@Name("connect4.Search")
+@Label("Connect4 Search")
+@Category("Connect4")
+final class Connect4SearchEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes per Second")
+    long nps;
+
+    @Label("Evaluations")
+    long evals;
+
+    @Label("Cutoff Rate")
+    @Percentage
+    double cutoffRate;
+
+    @Label("First Move Cutoff Ratio")
+    @Percentage
+    double firstCutoffRatio;
+
+    @Label("TT Hit Rate")
+    @Percentage
+    double ttHitRate;
+}
@@ -0,0 +1,6 @@
+package connect4game;
+// Receives the statistics of every engine search, called from the search thread
+
+public interface Connect4SearchListener {
+    public void searchFinished(Connect4SearchStats stats);
+}
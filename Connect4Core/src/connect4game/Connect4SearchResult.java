@@ -0,0 +1,30 @@
+package connect4game;
+// Result of an engine search
+
+final class Connect4SearchResult {
+
+    final int col; // Best column or -1
+    final int score; // Seen from the player to move
+    final int depth; // Depth of the last finished iteration, plies to the end of the game if solved
+    final long nodes; // Nodes of all workers
+    final long time; // ns
+    final int[] pv; // Principal variation, starting with col
+    final boolean solved; // Exact result of the endgame solver
+    final Connect4SearchStats stats;
+
+    Connect4SearchResult(int col, int score, int[] pv, boolean solved, Connect4SearchStats stats) {
+        this.col = col;
+        this.score = score;
+        this.depth = stats.getDepth();
+        this.nodes = stats.getNodes();
+        this.time = stats.getTime();
+        this.pv = pv;
+        this.solved = solved;
+        this.stats = stats;
+    }
+
+    @Override
+    public String toString() {
+        return "col=" + col + ",score=" + score + ",depth=" + depth + ",nodes=" + nodes + ",time=" + time / 1000000 + "ms" + (solved ? ",solved" : "");
+    }
+}
@@ -0,0 +1,106 @@
+package connect4game;
+// Statistics of one engine search (one computer move), all workers summed up
+
+public final class Connect4SearchStats {
+
+    private final String source; // "search", "solver", "tablebase" or "book"
+    private final int depth;
+    private final long time; // ns
+    private final long nodes, evals, expanded, cutoffs, firstCutoffs, ttProbes, ttHits, ttCutoffs, tablebaseHits;
+
+    // s: sums in the order of Connect4Search.addStats, null if nothing was searched
+    Connect4SearchStats(String source, int depth, long time, long[] s) {
+        if (s == null) s = new long[9];
+        this.source = source;
+        this.depth = depth;
+        this.time = time;
+        nodes = s[0];
+        evals = s[1];
+        expanded = s[2];
+        cutoffs = s[3];
+        firstCutoffs = s[4];
+        ttProbes = s[5];
+        ttHits = s[6];
+        ttCutoffs = s[7];
+        tablebaseHits = s[8];
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Depth of the last finished iteration, plies to the end of the game if solved
+    public int getDepth() {
+        return depth;
+    }
+
+    // ns
+    public long getTime() {
+        return time;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNodesPerSecond() {
+        return time > 0 ? nodes * 1000000000L / time : 0;
+    }
+
+    // Calls of the evaluation function
+    public long getEvals() {
+        return evals;
+    }
+
+    // Nodes whose moves were searched (no leaf and no transposition table cutoff)
+    public long getExpanded() {
+        return expanded;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    // Beta cutoffs in percent of the expanded nodes
+    public double getCutoffRate() {
+        return expanded > 0 ? 100.0 * cutoffs / expanded : 0;
+    }
+
+    public long getFirstCutoffs() {
+        return firstCutoffs;
+    }
+
+    // Cutoffs by the first move in percent of all cutoffs, shows the quality of the move ordering
+    public double getFirstCutoffRatio() {
+        return cutoffs > 0 ? 100.0 * firstCutoffs / cutoffs : 0;
+    }
+
+    // Transposition table probes, hits (entry found) and cutoffs (score of the entry used)
+    public long getTtProbes() {
+        return ttProbes;
+    }
+
+    public long getTtHits() {
+        return ttHits;
+    }
+
+    public long getTtCutoffs() {
+        return ttCutoffs;
+    }
+
+    // Positions of the search with an exact result from the endgame tablebase
+    public long getTablebaseHits() {
+        return tablebaseHits;
+    }
+
+    public double getTtHitRate() {
+        return ttProbes > 0 ? 100.0 * ttHits / ttProbes : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s depth=%d,nodes=%d,nps=%d,evals=%d,cutoffs=%.1f%%,first=%.1f%%,tthits=%.1f%%,time=%dms",
+                source, depth, nodes, getNodesPerSecond(), evals, getCutoffRate(), getFirstCutoffRatio(), getTtHitRate(), time / 1000000)
+                + (tablebaseHits > 0 ? ",tbhits=" + tablebaseHits : "");
+    }
+}
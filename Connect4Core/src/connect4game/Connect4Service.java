@@ -0,0 +1,195 @@
+package connect4game;
+// Local analysis service: HTTP on localhost, GET /bestmove?moves=3345&time=100&depth=12&size=7x6 returns the best
+// column, score and principal variation as JSON (multipv=<top> adds the scores of the best top columns, 0 all).
+// A pool of engines shares one transposition table, at most engines + queue requests are admitted at a time (503
+// otherwise), a request waits for an engine and searches within its timeout.
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public final class Connect4Service {
+
+    private final static AtomicInteger threadCount = new AtomicInteger();
+
+    private final Connect4EngineSettings settings;
+    private final long timeout; // ms per request, waiting for an engine and searching
+    private final BlockingQueue<Connect4Engine> engines; // Idle engines
+    private final Connect4Engine[] all;
+    private final Semaphore admission; // Requests in progress or waiting for an engine
+    private HttpServer server;
+    private ExecutorService handlers;
+
+    // Service with a pool of engines (settings: time and depth defaults of a request), queue: requests waiting for an
+    // engine beyond the number of engines, timeout: longest time of a request in ms
+    public Connect4Service(Connect4EngineSettings settings, int engines, int queue, long timeout) {
+        if (engines < 1) throw new IllegalArgumentException("engines " + engines);
+        if (queue < 0) throw new IllegalArgumentException("queue " + queue);
+        if (timeout < 1) throw new IllegalArgumentException("timeout " + timeout);
+        this.settings = settings;
+        this.timeout = timeout;
+        this.engines = new ArrayBlockingQueue<>(engines);
+        this.all = new Connect4Engine[engines];
+        Connect4TranspositionTable tt = new Connect4TranspositionTable(settings.getTtSizeMb());
+        for (int i = 0; i < engines; i++) {
+            all[i] = new Connect4Engine(settings, tt);
+            this.engines.add(all[i]);
+        }
+        this.admission = new Semaphore(engines + queue);
+    }
+
+    // Listen on localhost, port 0 picks a free port
+    public synchronized void start(int port) throws IOException {
+        if (server != null) throw new IllegalStateException("Service is running");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        handlers = Executors.newCachedThreadPool(r -> { // Requests beyond the admission limit only send a 503
+            Thread t = new Thread(r, "Connect4 service " + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/bestmove", this::bestMove);
+        server.start();
+    }
+
+    public synchronized int getPort() {
+        if (server == null) throw new IllegalStateException("Service is not running");
+        return server.getAddress().getPort();
+    }
+
+    // Stop accepting requests, requests in progress get up to delay seconds to finish
+    public synchronized void stop(int delay) {
+        if (server == null) return;
+        server.stop(delay);
+        handlers.shutdown();
+        for (Connect4Engine e : all) e.close();
+        server = null;
+    }
+
+    private void bestMove(HttpExchange x) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!x.getRequestMethod().equals("GET")) {
+                send(x, 405, error("GET only"));
+                return;
+            }
+            if (!admission.tryAcquire()) {
+                send(x, 503, error("Busy"));
+                return;
+            }
+            try {
+                send(x, 200, bestMove(query(x.getRequestURI().getRawQuery()), start));
+            } finally {
+                admission.release();
+            }
+        } catch (IllegalArgumentException e) {
+            send(x, 400, error(e.getMessage()));
+        } catch (ServiceException e) {
+            send(x, e.status, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(x, 503, error("Interrupted"));
+        } catch (RuntimeException e) {
+            send(x, 500, error(e.toString()));
+        }
+    }
+
+    // Search a request: moves, time (ms, at most the timeout), depth, size and multipv parameters
+    private String bestMove(Map<String, String> q, long start) throws InterruptedException, ServiceException {
+        Connect4Geometry g = q.containsKey("size") ? Connect4Geometry.parse(q.get("size")) : Connect4Geometry.STANDARD;
+        String moves = q.getOrDefault("moves", "");
+        Connect4BitBoard b = Connect4BitBoard.ofMoves(g, moves);
+        if (b.won() || b.getTotPieces() >= g.cells) throw new IllegalArgumentException("Game over: " + moves);
+        long time = q.containsKey("time") ? Long.parseLong(q.get("time")) : settings.getTimeBudget();
+        int depth = q.containsKey("depth") ? Integer.parseInt(q.get("depth")) : settings.getMaxDepth();
+        int top = q.containsKey("multipv") ? Integer.parseInt(q.get("multipv")) : -1;
+        if (time < 1 || depth < 1) throw new IllegalArgumentException("time " + time + ", depth " + depth);
+        long deadline = start + timeout * 1000000L;
+        Connect4Engine e = engines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (e == null) throw new ServiceException(503, "No engine within the timeout");
+        Connect4SearchResult r;
+        Connect4SearchResult[] columns = null;
+        try {
+            long left = (deadline - System.nanoTime()) / 1000000;
+            if (left < 1) throw new ServiceException(504, "Timeout");
+            if (top < 0) r = e.search(b, new AtomicBoolean(), null, Math.min(time, left), depth);
+            else {
+                columns = e.analyze(b, new AtomicBoolean(), Math.min(time, left), depth, top);
+                if (columns.length == 0) throw new ServiceException(504, "Timeout");
+                r = columns[0];
+            }
+        } finally {
+            engines.add(e);
+        }
+        if (r.col < 0) throw new ServiceException(504, "Timeout");
+        StringBuilder json = new StringBuilder("{\"moves\":\"").append(moves).append("\",\"col\":").append(r.col)
+                .append(",\"score\":").append(r.score).append(",\"depth\":").append(r.depth).append(",\"pv\":").append(pv(r.pv));
+        if (columns != null) {
+            json.append(",\"columns\":[");
+            for (int i = 0; i < columns.length; i++) {
+                json.append(i > 0 ? "," : "").append("{\"col\":").append(columns[i].col).append(",\"score\":").append(columns[i].score)
+                        .append(",\"pv\":").append(pv(columns[i].pv)).append("}");
+            }
+            json.append("]");
+        }
+        return json.append(",\"nodes\":").append(r.nodes).append(",\"ms\":").append(r.time / 1000000).append(",\"solved\":")
+                .append(r.solved).append("}").toString();
+    }
+
+    private static String pv(int[] pv) {
+        StringBuilder s = new StringBuilder("[");
+        for (int c : pv) s.append(s.length() > 1 ? "," : "").append(c);
+        return s.append("]").toString();
+    }
+
+    private static Map<String, String> query(String q) {
+        Map<String, String> m = new HashMap<>();
+        if (q == null) return m;
+        for (String kv : q.split("&")) {
+            if (kv.isEmpty()) continue;
+            String[] p = kv.split("=", 2);
+            m.put(URLDecoder.decode(p[0], StandardCharsets.UTF_8), p.length > 1 ? URLDecoder.decode(p[1], StandardCharsets.UTF_8) : "");
+        }
+        return m;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void send(HttpExchange x, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        x.getResponseHeaders().set("Content-Type", "application/json");
+        x.sendResponseHeaders(status, body.length);
+        try (OutputStream out = x.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Request failed with a HTTP status
+    private static final class ServiceException extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
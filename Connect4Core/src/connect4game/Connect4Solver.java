@@ -0,0 +1,209 @@
+package connect4game;
+// Exact solver for positions with few empty fields: win/draw/loss with distance, null window search on the
+// position score (thanks Pascal Pons, "Solving Connect 4")
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class Connect4Solver {
+
+    // Score of a position: 0 draw, (CELLS+1-n)/2 if the player to move wins with his n-th piece on the board,
+    // negative if the opponent wins
+    final static int UNKNOWN = Integer.MIN_VALUE; // Solver ran out of time or was stopped
+
+    private final static int TIME_CHECK_NODES = 4095;
+    private final static int TT_BITS = 20; // Solver transposition table entries
+
+    // Transposition table: exact position keys and upper bounds (score - minScore + 1, 0 is empty), packed geometries
+    // have no exact key, all pieces are stored as well
+    private final long[] ttKeys = new long[1 << TT_BITS];
+    private final long[] ttAll;
+    private final byte[] ttValues = new byte[1 << TT_BITS];
+
+    // Board size
+    private final Connect4Geometry g;
+    private final int cols, cells, minScore;
+    private final long bottom; // Lowest field of every column
+    private final int[] colOrder; // Column priority for moves with the same number of threats
+
+    // Search state
+    private long own, all; // Same layout as Connect4BitBoard
+    private int moves;
+    private long nodes;
+    private long deadline;
+    private AtomicBoolean stop;
+    private boolean aborted;
+    private final long[][] sorted; // Move list per ply
+    private final int[][] sortedThreats;
+
+    Connect4Solver(Connect4Geometry g) {
+        this.g = g;
+        cols = g.cols;
+        cells = g.cells;
+        minScore = -cells / 2 + 3;
+        bottom = g.bottom;
+        colOrder = g.colOrder;
+        sorted = new long[cells + 1][cols];
+        sortedThreats = new int[cells + 1][cols];
+        ttAll = g.packed ? new long[1 << TT_BITS] : null;
+    }
+
+    Connect4Geometry getGeometry() {
+        return g;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    // Best move of a position, score and plies to the end in result[0..1], returns -1 if not solved in time
+    int bestMove(Connect4BitBoard board, long deadline, AtomicBoolean stop, int[] result) {
+        this.deadline = deadline;
+        this.stop = stop;
+        aborted = false;
+        nodes = 0;
+        int bestCol = -1, bestScore = UNKNOWN;
+        for (int c : colOrder) {
+            if (!board.canPlay(c)) continue;
+            int s;
+            set(board);
+            long move = (all + bottomMask(c)) & columnMask(c);
+            if ((winningPositions(own, all) & move) != 0) {
+                s = (cells + 1 - moves) / 2;
+            } else {
+                play(move);
+                s = moves >= cells ? 0 : -solve();
+            }
+            if (aborted) return -1;
+            if (s > bestScore) {
+                bestScore = s;
+                bestCol = c;
+            }
+        }
+        result[0] = bestScore;
+        result[1] = getPlies(cells, bestScore, board.getTotPieces());
+        return bestCol;
+    }
+
+    // Number of plies until the game ends with a position score, moves is the number of pieces on the board
+    static int getPlies(int cells, int score, int moves) {
+        if (score > 0) return 2 * ((cells + 1 - moves) / 2 - score + 1) - 1;
+        if (score < 0) return 2 * ((cells - moves) / 2 + score + 1);
+        return cells - moves;
+    }
+
+    private void set(Connect4BitBoard board) {
+        own = board.getOwn();
+        all = board.getAll();
+        moves = board.getTotPieces();
+    }
+
+    private void play(long move) {
+        own ^= all;
+        all |= move;
+        moves++;
+    }
+
+    // Narrow the score window with null window searches
+    private int solve() {
+        if ((winningPositions(own, all) & possible()) != 0) return (cells + 1 - moves) / 2;
+        int min = -(cells - moves) / 2;
+        int max = (cells + 1 - moves) / 2;
+        while (min < max) {
+            int med = min + (max - min) / 2;
+            if (med <= 0 && min / 2 < med) med = min / 2;
+            else if (med >= 0 && max / 2 > med) med = max / 2;
+            int r = negamax(0, med, med + 1);
+            if (aborted) return 0;
+            if (r <= med) max = r;
+            else min = r;
+        }
+        return min;
+    }
+
+    // Negamax with alpha/beta pruning, the player to move can not win with his next move
+    private int negamax(int ply, int alpha, int beta) {
+        if ((++nodes & TIME_CHECK_NODES) == 0 && (stop.get() || System.nanoTime() > deadline)) aborted = true;
+        if (aborted) return 0;
+
+        long next = nonLosingMoves();
+        if (next == 0) return -(cells - moves) / 2; // Opponent wins with his next move
+        if (moves >= cells - 2) return 0; // Draw
+
+        int min = -(cells - 2 - moves) / 2; // Opponent can not win with his next move
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) return alpha;
+        }
+        int max = (cells - 1 - moves) / 2; // Can not win with the next move
+        long key = own + all;
+        int i = (int) (key & ((1 << TT_BITS) - 1));
+        if (ttKeys[i] == key && ttValues[i] != 0 && (ttAll == null || ttAll[i] == all)) max = ttValues[i] + minScore - 1;
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) return beta;
+        }
+
+        // Moves which create most threats first
+        int n = 0;
+        long[] m = sorted[ply];
+        int[] t = sortedThreats[ply];
+        for (int k = cols - 1; k >= 0; k--) {
+            long move = next & columnMask(colOrder[k]);
+            if (move == 0) continue;
+            int threats = Long.bitCount(winningPositions(own | move, all));
+            int j = n++;
+            while (j > 0 && t[j - 1] > threats) {
+                m[j] = m[j - 1];
+                t[j] = t[j - 1];
+                j--;
+            }
+            m[j] = move;
+            t[j] = threats;
+        }
+
+        long own0 = own, all0 = all;
+        for (int k = n - 1; k >= 0; k--) {
+            play(m[k]);
+            int s = -negamax(ply + 1, -beta, -alpha);
+            own = own0;
+            all = all0;
+            moves--;
+            if (aborted) return 0;
+            if (s >= beta) return s;
+            if (s > alpha) alpha = s;
+        }
+
+        ttKeys[i] = key;
+        if (ttAll != null) ttAll[i] = all;
+        ttValues[i] = (byte) (alpha - minScore + 1);
+        return alpha;
+    }
+
+    private long possible() {
+        return g.playable(all);
+    }
+
+    // Possible moves which do not let the opponent win with his next move
+    private long nonLosingMoves() {
+        long possible = possible();
+        long opponentWin = winningPositions(own ^ all, all);
+        long forced = possible & opponentWin;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) return 0; // Two threats, can not block both
+            possible = forced;
+        }
+        return possible & ~((opponentWin & ~bottom) >>> 1); // Do not play below an opponent threat
+    }
+
+    private long winningPositions(long p, long all) {
+        return g.winningPositions(p, all);
+    }
+
+    private long bottomMask(int col) {
+        return g.bottomMask(col);
+    }
+
+    private long columnMask(int col) {
+        return g.columnMask(col);
+    }
+}
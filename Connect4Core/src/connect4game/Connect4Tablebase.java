@@ -0,0 +1,357 @@
+package connect4game;
+// Endgame tablebase: exact results of all positions with at most a number of empty fields which are reachable from a
+// set of root positions, built by retrograde analysis (the values of a piece count from the values of the next one)
+// and stored as a compressed indexed file, probed through a memory mapped buffer
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class Connect4Tablebase {
+
+    // File format: header (magic, version, columns, rows, max empty fields, entry count, block count), first block of
+    // every piece count from columns * rows - max empty fields on (int each, the block count at the end), index (first
+    // key (long) and offset from the first block (int) of every block), blocks of up to BLOCK entries of one piece
+    // count sorted by canonical position key. Entry: key difference to the entry before (varint, 0 for the first entry
+    // of a block), value (byte, solver score of the position seen from the player to move, see Connect4Solver)
+    private final static int MAGIC = 0x43345442; // "C4TB"
+    private final static int VERSION = 1;
+    private final static int HEADER_BYTES = 28;
+    private final static int INDEX_BYTES = 12;
+    private final static int BLOCK = 16; // Entries per block, a probe decodes at most one block
+
+    final static int UNKNOWN = Integer.MIN_VALUE; // Position not in the table
+
+    private final static ConcurrentHashMap<Path, Connect4Tablebase> tables = new ConcurrentHashMap<>(); // Opened tables, shared by all engines
+
+    private final MappedByteBuffer buffer;
+    private final Connect4Geometry geometry;
+    private final int maxEmpty, minPieces, count, blocks;
+    private final int index, data; // Buffer positions of the index and the first block
+
+    private Connect4Tablebase(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a Connect4 tablebase (version " + VERSION + "): " + file);
+        }
+        geometry = Connect4Geometry.of(buffer.getInt(8), buffer.getInt(12));
+        maxEmpty = buffer.getInt(16);
+        count = buffer.getInt(20);
+        blocks = buffer.getInt(24);
+        minPieces = geometry.cells - maxEmpty;
+        index = HEADER_BYTES + 4 * (maxEmpty + 1);
+        data = index + blocks * INDEX_BYTES;
+        if (buffer.capacity() < data) throw new IOException("Truncated tablebase: " + file);
+    }
+
+    // Open a tablebase file, every file is mapped only once
+    static Connect4Tablebase open(String file) {
+        return tables.computeIfAbsent(Paths.get(file).toAbsolutePath(), p -> {
+            try {
+                return new Connect4Tablebase(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    Connect4Geometry getGeometry() {
+        return geometry;
+    }
+
+    int getMaxEmpty() {
+        return maxEmpty;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    // Solver score of a position or UNKNOWN, binary search of the index and decoding of one block without allocation
+    int probe(Connect4BitBoard board) {
+        int n = board.getTotPieces();
+        if (n < minPieces || n >= geometry.cells || board.getGeometry() != geometry) return UNKNOWN;
+        return probe(n, board.getCanonicalPositionKey());
+    }
+
+    private int probe(int pieces, long key) {
+        int lo = buffer.getInt(HEADER_BYTES + 4 * (pieces - minPieces));
+        int hi = buffer.getInt(HEADER_BYTES + 4 * (pieces - minPieces + 1)) - 1;
+        int block = -1;
+        while (lo <= hi) { // Last block starting at or below the key
+            int mid = (lo + hi) >>> 1;
+            if (buffer.getLong(index + mid * INDEX_BYTES) <= key) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) return UNKNOWN;
+        int p = data + buffer.getInt(index + block * INDEX_BYTES + 8);
+        int end = block + 1 < blocks ? data + buffer.getInt(index + (block + 1) * INDEX_BYTES + 8) : buffer.capacity();
+        long k = buffer.getLong(index + block * INDEX_BYTES);
+        while (p < end) {
+            long d = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buffer.get(p++);
+                d |= (long) (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            k += d;
+            if (k == key) return buffer.get(p);
+            if (k > key) return UNKNOWN;
+            p++;
+        }
+        return UNKNOWN;
+    }
+
+    // Best move of a position in the table, score and plies to the end in result[0..1] as Connect4Solver.bestMove(),
+    // returns -1 if the position is not in the table
+    int bestMove(Connect4BitBoard board, int[] result) {
+        int n = board.getTotPieces();
+        if (n < minPieces || n >= geometry.cells || board.getGeometry() != geometry || board.won()) return -1;
+        Connect4Geometry g = geometry;
+        long own = board.getOwn(), all = board.getAll();
+        long wins = g.winningPositions(own, all);
+        int bestCol = -1, bestScore = UNKNOWN;
+        for (int c : g.colOrder) {
+            long move = (all + g.bottomMask(c)) & g.columnMask(c);
+            if (move == 0) continue;
+            int s;
+            if ((wins & move) != 0) s = (g.cells + 1 - n) / 2;
+            else if (n + 1 >= g.cells) s = 0;
+            else {
+                int v = probe(n + 1, canonicalKey(g, own ^ all, all | move));
+                if (v == UNKNOWN) return -1;
+                s = -v;
+            }
+            if (s > bestScore) {
+                bestScore = s;
+                bestCol = c;
+            }
+        }
+        result[0] = bestScore;
+        result[1] = Connect4Solver.getPlies(g.cells, bestScore, n);
+        return bestCol;
+    }
+
+    // Canonical position key of the pieces of the player to move and all pieces (see Connect4BitBoard), the key has no
+    // carries between the columns, the mirror image of the key is the key of the mirror image
+    private static long canonicalKey(Connect4Geometry g, long own, long all) {
+        long key = own + all;
+        return Math.min(key, g.mirror(key));
+    }
+
+    // Generate a tablebase of the positions with at most maxEmpty empty fields reachable from the positions of the root
+    // move sequences (positions with more empty fields cover the searches from them), one task per chunk of a piece
+    // count on a pool of threads
+    static void generate(String file, Connect4Geometry g, int maxEmpty, List<String> roots, int threads) throws IOException, InterruptedException {
+        g.checkPositionKeys();
+        if (maxEmpty < 1 || maxEmpty > g.cells) throw new IllegalArgumentException("maxEmpty " + maxEmpty);
+        int minPieces = g.cells - maxEmpty;
+        long[][] keys = new long[g.cells][]; // Positions by piece count, sorted, not decided and not full
+        byte[][] values = new byte[g.cells][];
+        long[] rootKeys = new long[roots.size()];
+        int[] rootPieces = new int[roots.size()];
+        int first = g.cells;
+        for (int i = 0; i < rootKeys.length; i++) {
+            Connect4BitBoard b = Connect4BitBoard.ofMoves(g, roots.get(i));
+            rootPieces[i] = b.won() ? g.cells : b.getTotPieces(); // Decided and full positions are left out
+            rootKeys[i] = b.getCanonicalPositionKey();
+            first = Math.min(first, rootPieces[i]);
+        }
+        if (first == g.cells) throw new IllegalArgumentException("No root position");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // Forward: the roots and all successors of a piece count which do not decide the game, only the piece
+            // counts of the table are kept
+            keys[first] = unique(roots(rootKeys, rootPieces, first));
+            for (int p = first; p + 1 < g.cells; p++) {
+                final long[] level = keys[p];
+                List<long[]> parts = parallel(pool, level.length, threads, (from, to) -> successors(g, level, from, to));
+                parts.add(roots(rootKeys, rootPieces, p + 1));
+                int size = 0;
+                for (long[] part : parts) size += part.length;
+                long[] next = new long[size];
+                size = 0;
+                for (long[] part : parts) {
+                    System.arraycopy(part, 0, next, size, part.length);
+                    size += part.length;
+                }
+                keys[p + 1] = unique(next);
+                if (p < minPieces) keys[p] = null; // Not in the table
+            }
+            // Backward: the value of a position is the best of its moves, from the fullest boards to the roots
+            for (int p = g.cells - 1; p >= minPieces; p--) {
+                final int pieces = p;
+                values[p] = new byte[keys[p].length];
+                parallel(pool, keys[p].length, threads, (from, to) -> {
+                    for (int i = from; i < to; i++) values[pieces][i] = (byte) value(g, keys, values, pieces, keys[pieces][i]);
+                    return null;
+                });
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        write(file, g, maxEmpty, keys, values);
+    }
+
+    private interface Chunk<T> {
+        T run(int from, int to);
+    }
+
+    // Run a chunk of the range 0..size per task, the results in the order of the chunks
+    private static <T> List<T> parallel(ExecutorService pool, int size, int threads, Chunk<T> chunk) throws InterruptedException, ExecutionException {
+        int chunks = Math.max(1, Math.min(size / 1024, 4 * threads));
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int from = (int) ((long) size * i / chunks), to = (int) ((long) size * (i + 1) / chunks);
+            futures.add(pool.submit(() -> chunk.run(from, to)));
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> f : futures) results.add(f.get());
+        return results;
+    }
+
+    // Keys of the roots with a piece count
+    private static long[] roots(long[] rootKeys, int[] rootPieces, int pieces) {
+        int n = 0;
+        long[] keys = new long[rootKeys.length];
+        for (int i = 0; i < rootKeys.length; i++) if (rootPieces[i] == pieces) keys[n++] = rootKeys[i];
+        return Arrays.copyOf(keys, n);
+    }
+
+    // Canonical keys of the successors of the positions from..to-1 of a level which do not decide the game
+    private static long[] successors(Connect4Geometry g, long[] level, int from, int to) {
+        long[] next = new long[Math.max(16, (to - from) * 2)];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            long own = own(g, level[i]), all = all(g, level[i]);
+            long wins = g.winningPositions(own, all);
+            for (int c = 0; c < g.cols; c++) {
+                long move = (all + g.bottomMask(c)) & g.columnMask(c);
+                if (move == 0 || (wins & move) != 0) continue;
+                if (n == next.length) next = Arrays.copyOf(next, 2 * n);
+                next[n++] = canonicalKey(g, own ^ all, all | move);
+            }
+        }
+        return Arrays.copyOf(next, n);
+    }
+
+    // Solver score of a position from the values of its successors
+    private static int value(Connect4Geometry g, long[][] keys, byte[][] values, int pieces, long key) {
+        long own = own(g, key), all = all(g, key);
+        long wins = g.winningPositions(own, all);
+        int best = -g.cells;
+        for (int c = 0; c < g.cols; c++) {
+            long move = (all + g.bottomMask(c)) & g.columnMask(c);
+            if (move == 0) continue;
+            if ((wins & move) != 0) return (g.cells + 1 - pieces) / 2; // Nothing is better than winning now
+            int s = 0; // Draw with the last field
+            if (pieces + 1 < g.cells) s = -values[pieces + 1][Arrays.binarySearch(keys[pieces + 1], canonicalKey(g, own ^ all, all | move))];
+            best = Math.max(best, s);
+        }
+        return best;
+    }
+
+    // All pieces of a position key: a column holds own + all, the highest bit marks the empty field above the pieces
+    private static long all(Connect4Geometry g, long key) {
+        long all = 0;
+        for (int c = 0; c < g.cols; c++) {
+            long v = (key >>> (c * g.h1)) & ((1L << g.h1) - 1);
+            all |= ((Long.highestOneBit(v + 1) - 1)) << (c * g.h1);
+        }
+        return all;
+    }
+
+    // Pieces of the player to move of a position key
+    private static long own(Connect4Geometry g, long key) {
+        return key - all(g, key);
+    }
+
+    private static long[] unique(long[] keys) {
+        Arrays.parallelSort(keys);
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) if (i == 0 || keys[i] != keys[i - 1]) keys[n++] = keys[i];
+        return Arrays.copyOf(keys, n);
+    }
+
+    private static void write(String file, Connect4Geometry g, int maxEmpty, long[][] keys, byte[][] values) throws IOException {
+        int minPieces = g.cells - maxEmpty;
+        int count = 0, blocks = 0;
+        for (int p = minPieces; p < g.cells; p++) {
+            count += keys[p].length;
+            blocks += (keys[p].length + BLOCK - 1) / BLOCK;
+        }
+        try (OutputStream os = Files.newOutputStream(Paths.get(file));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(g.cols);
+            out.writeInt(g.rows);
+            out.writeInt(maxEmpty);
+            out.writeInt(count);
+            out.writeInt(blocks);
+            int block = 0;
+            for (int p = minPieces; p < g.cells; p++) {
+                out.writeInt(block);
+                block += (keys[p].length + BLOCK - 1) / BLOCK;
+            }
+            out.writeInt(blocks);
+            int offset = 0; // Index: the block sizes follow from the key differences
+            for (int p = minPieces; p < g.cells; p++) {
+                long[] k = keys[p];
+                for (int i = 0; i < k.length; i++) {
+                    if (i % BLOCK == 0) {
+                        out.writeLong(k[i]);
+                        out.writeInt(offset);
+                    }
+                    offset += varintBytes(i % BLOCK == 0 ? 0 : k[i] - k[i - 1]) + 1;
+                }
+            }
+            for (int p = minPieces; p < g.cells; p++) {
+                long[] k = keys[p];
+                for (int i = 0; i < k.length; i++) {
+                    long d = i % BLOCK == 0 ? 0 : k[i] - k[i - 1];
+                    while ((d & ~0x7FL) != 0) {
+                        out.writeByte((int) (d & 0x7F) | 0x80);
+                        d >>>= 7;
+                    }
+                    out.writeByte((int) d);
+                    out.writeByte(values[p][i]);
+                }
+            }
+        }
+    }
+
+    private static int varintBytes(long d) {
+        int n = 1;
+        while ((d & ~0x7FL) != 0) {
+            d >>>= 7;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,151 @@
+package connect4game;
+// Engine statistics: listeners, JFR events (with -Dconnect4.jfr=true) and the JMX MBean "connect4game:type=Telemetry"
+// (registered with -Dconnect4.jmx=true or registerMBean()), JFR and JMX are not loaded otherwise
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public final class Connect4Telemetry implements Connect4TelemetryMBean {
+
+    private final static Connect4Telemetry INSTANCE = new Connect4Telemetry();
+    private final static List<Connect4SearchListener> listeners = new CopyOnWriteArrayList<>();
+    private static boolean registered;
+    private final static boolean JFR = Boolean.getBoolean("connect4.jfr");
+
+    static {
+        if (Boolean.getBoolean("connect4.jmx")) registerMBean();
+    }
+
+    // Totals
+    private long searches, nodes, time, evals, expanded, cutoffs, firstCutoffs, ttProbes, ttHits;
+    private Connect4SearchStats last;
+
+    private Connect4Telemetry() {
+    }
+
+    public static void addListener(Connect4SearchListener l) {
+        listeners.add(l);
+    }
+
+    public static void removeListener(Connect4SearchListener l) {
+        listeners.remove(l);
+    }
+
+    public static synchronized void registerMBean() {
+        if (registered) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("connect4game:type=Telemetry"));
+            registered = true;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Called by the engine at the start of every search, returns the JFR event for searchFinished, null without JFR
+    static Object searchStarted() {
+        return JFR ? Jfr.begin() : null;
+    }
+
+    // Called by the engine at the end of every search with the event of searchStarted
+    static void searchFinished(Connect4SearchStats s, Object event) {
+        INSTANCE.add(s);
+        if (event != null) Jfr.commit(event, s);
+        for (Connect4SearchListener l : listeners) l.searchFinished(s);
+    }
+
+    // Holder of the JFR calls, the class (and JFR) is loaded by the first event
+    private static final class Jfr {
+
+        static Object begin() {
+            Connect4SearchEvent event = new Connect4SearchEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commit(Object e, Connect4SearchStats s) {
+            Connect4SearchEvent event = (Connect4SearchEvent) e;
+            if (!event.shouldCommit()) return; // Not recording
+            event.source = s.getSource();
+            event.depth = s.getDepth();
+            event.nodes = s.getNodes();
+            event.nps = s.getNodesPerSecond();
+            event.evals = s.getEvals();
+            event.cutoffRate = s.getCutoffRate() / 100;
+            event.firstCutoffRatio = s.getFirstCutoffRatio() / 100;
+            event.ttHitRate = s.getTtHitRate() / 100;
+            event.commit();
+        }
+    }
+
+    private synchronized void add(Connect4SearchStats s) {
+        searches++;
+        nodes += s.getNodes();
+        time += s.getTime();
+        evals += s.getEvals();
+        expanded += s.getExpanded();
+        cutoffs += s.getCutoffs();
+        firstCutoffs += s.getFirstCutoffs();
+        ttProbes += s.getTtProbes();
+        ttHits += s.getTtHits();
+        last = s;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public synchronized long getTime() {
+        return time / 1000000;
+    }
+
+    @Override
+    public synchronized long getNodesPerSecond() {
+        return time > 0 ? nodes * 1000000000L / time : 0;
+    }
+
+    @Override
+    public synchronized long getEvals() {
+        return evals;
+    }
+
+    @Override
+    public synchronized double getCutoffRate() {
+        return expanded > 0 ? 100.0 * cutoffs / expanded : 0;
+    }
+
+    @Override
+    public synchronized double getFirstCutoffRatio() {
+        return cutoffs > 0 ? 100.0 * firstCutoffs / cutoffs : 0;
+    }
+
+    @Override
+    public synchronized double getTtHitRate() {
+        return ttProbes > 0 ? 100.0 * ttHits / ttProbes : 0;
+    }
+
+    @Override
+    public synchronized int getLastDepth() {
+        return last != null ? last.getDepth() : 0;
+    }
+
+    @Override
+    public synchronized long getLastNodesPerSecond() {
+        return last != null ? last.getNodesPerSecond() : 0;
+    }
+
+    @Override
+    public synchronized String getLastSearch() {
+        return last != null ? last.toString() : "";
+    }
+}
@@ -0,0 +1,16 @@
+package connect4game;
+// JMX view of the engine statistics: totals of all searches and the last search
+
+public interface Connect4TelemetryMBean {
+    public long getSearches();
+    public long getNodes();
+    public long getTime(); // ms
+    public long getNodesPerSecond();
+    public long getEvals();
+    public double getCutoffRate();
+    public double getFirstCutoffRatio();
+    public double getTtHitRate();
+    public int getLastDepth();
+    public long getLastNodesPerSecond();
+    public String getLastSearch();
+}
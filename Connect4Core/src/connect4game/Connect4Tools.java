@@ -0,0 +1,559 @@
+package connect4game;
+// Command line tools (no GUI)
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class Connect4Tools {
+
+    // Fixed position set (move sequences), taken from the recorded games in Connect4.java
+    final static String[] POSITIONS = {
+        "", "3", "334", "33453333", "3345333312222245",
+        "4333", "43333363", "4333336304441",
+    };
+
+    // Bench suite: the position set and later positions of both recorded games, the last two won in a few moves
+    final static String[] BENCH = {
+        "", "3", "334", "33453333", "3345333312222245",
+        "4333", "43333363", "4333336304441",
+        "33453333122222454441", "334533331222224544410551", "3345333312222245444105515452",
+        "43333363044414", "433333630444141024", "43333363044414102461",
+        "334533331222224544410551545200", "4333336304441410246116",
+    };
+
+    private Connect4Tools() {
+    }
+
+    public static void main(String[] args) {
+        String cmd = args.length > 0 ? args[0] : "";
+        switch (cmd) {
+        case "bestmove":
+            bestMove(args.length > 1 ? args[1] : "", args.length > 2 ? args[2] : "", sizeArg(args, 3));
+            break;
+        case "check":
+            checkScore(intArg(args, 1, 10000), longArg(args, 2, 1), sizeArg(args, 3));
+            break;
+        case "book":
+            if (args.length < 2) usage();
+            else book(args[1], intArg(args, 2, 4), intArg(args, 3, 12), intArg(args, 4, Runtime.getRuntime().availableProcessors()), sizeArg(args, 5));
+            break;
+        case "tablebase":
+            if (args.length < 2) usage();
+            else tablebase(args[1], intArg(args, 2, 12), intArg(args, 3, 200), intArg(args, 4, 4),
+                    intArg(args, 5, Runtime.getRuntime().availableProcessors()), sizeArg(args, 6));
+            break;
+        case "tournament":
+            if (args.length < 5) usage();
+            else tournament(args);
+            break;
+        case "ordering":
+            ordering(intArg(args, 1, 12));
+            break;
+        case "modes":
+            modes(intArg(args, 1, 12), intArg(args, 2, 24));
+            break;
+        case "multipv":
+            multiPv(intArg(args, 1, 12), intArg(args, 2, 3), intArg(args, 3, 1));
+            break;
+        case "analyze":
+            if (args.length < 2) usage();
+            else analyze(args[1], args.length > 2 ? args[2] : "", intArg(args, 3, Runtime.getRuntime().availableProcessors()),
+                    args.length > 4 && args[4].equals("final"), sizeArg(args, 5));
+            break;
+        case "serve":
+            serve(intArg(args, 1, 4444), intArg(args, 2, Runtime.getRuntime().availableProcessors()), intArg(args, 3, 64),
+                    longArg(args, 4, 5000), args.length > 5 ? args[5] : "");
+            break;
+        case "loadtest":
+            loadTest(intArg(args, 1, 4444), intArg(args, 2, 16), intArg(args, 3, 50), longArg(args, 4, 50));
+            break;
+        case "records":
+            if (args.length < 2) usage();
+            else records(args[1], intArg(args, 2, 0));
+            break;
+        case "sizes":
+            sizes(longArg(args, 1, 1000));
+            break;
+        case "bench":
+            bench(intArg(args, 1, 12));
+            break;
+        case "speedup":
+            speedup(intArg(args, 1, Runtime.getRuntime().availableProcessors()), intArg(args, 2, 12));
+            break;
+        default:
+            usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: Connect4Tools bestmove [moves] [settings] [size]");
+        System.out.println("       Connect4Tools check [games] [seed] [size]");
+        System.out.println("       Connect4Tools sizes [time]");
+        System.out.println("       Connect4Tools analyze <file|-> [settings] [workers] [all|final] [size]");
+        System.out.println("       Connect4Tools serve [port] [engines] [queue] [timeout] [settings]");
+        System.out.println("       Connect4Tools loadtest [port] [clients] [requestsPerClient] [time]");
+        System.out.println("       Connect4Tools bench [depth]");
+        System.out.println("       Connect4Tools speedup [maxThreads] [depth]");
+        System.out.println("       Connect4Tools ordering [depth]");
+        System.out.println("       Connect4Tools modes [depth] [randomPositions]");
+        System.out.println("       Connect4Tools multipv [depth] [top] [threads]");
+        System.out.println("       Connect4Tools book <file> [maxPly] [depth] [threads] [size]");
+        System.out.println("       Connect4Tools tablebase <file> [maxEmpty] [games] [spread] [threads] [size]");
+        System.out.println("       Connect4Tools tournament <games> <threads> <settingsA> <settingsB> [openingPlies] [seed] [recordFile]");
+        System.out.println("       Connect4Tools records <file> [randomGamesToAppend]");
+        System.out.println("Engine settings: time=<ms>,depth=<n>,tt=<MB>,threads=<n>,solver=<empty fields>,book=<file>,tablebase=<file>,");
+        System.out.println("                 threats=<true|false>,killers=<true|false>,history=<true|false>,");
+        System.out.println("                 search=<alphabeta|pvs|aspiration|mtdf>,eval=<lines|threats>,ponder=<true|false>");
+        System.out.println("Board size: <columns>x<rows>, default 7x6, columns * (rows + 1) <= 64; moves are column digits, a = 10");
+    }
+
+    static int intArg(String[] args, int i, int def) {
+        return args.length > i ? Integer.parseInt(args[i]) : def;
+    }
+
+    static long longArg(String[] args, int i, long def) {
+        return args.length > i ? Long.parseLong(args[i]) : def;
+    }
+
+    static Connect4Geometry sizeArg(String[] args, int i) {
+        return args.length > i ? Connect4Geometry.parse(args[i]) : Connect4Geometry.STANDARD;
+    }
+
+    // One shot search of a position given as move sequence
+    static void bestMove(String moves, String settings, Connect4Geometry geometry) {
+        Connect4Engine e = new Connect4Engine(Connect4EngineSettings.parse(settings));
+        Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(geometry, moves));
+        System.out.println(r);
+        System.out.println(r.stats);
+        e.close();
+    }
+
+    // Search the position set at fixed depth with 1..maxThreads threads and report the speedup against 1 thread
+    static void speedup(int maxThreads, int depth) {
+        System.out.println("threads      time   speedup       nodes       nps");
+        long time1 = 0;
+        for (int t = 1; t <= maxThreads; t++) {
+            long time = 0, nodes = 0;
+            for (String p : POSITIONS) {
+                Connect4Engine e = new Connect4Engine(new Connect4EngineSettings().setThreads(t).setMaxDepth(depth).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT));
+                Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(p));
+                e.close();
+                time += r.time;
+                nodes += r.nodes;
+            }
+            if (t == 1) time1 = time;
+            System.out.printf("%7d %7dms %9.2f %11d %9d%n", t, time / 1000000, (double) time1 / time, nodes, nodes * 1000000000L / Math.max(1, time));
+        }
+    }
+
+    // Analyze the games of a file (- is stdin), one move sequence per line, and print the results as they complete
+    static void analyze(String file, String settings, int workers, boolean finalOnly, Connect4Geometry g) {
+        Connect4Analyzer a = new Connect4Analyzer(Connect4EngineSettings.parse(settings), workers, !finalOnly, g);
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false);
+        long start = System.nanoTime();
+        try (BufferedReader in = file.equals("-") ? new BufferedReader(new InputStreamReader(System.in)) : Files.newBufferedReader(Paths.get(file))) {
+            out.println("line\tply\tmoves\tcol\tscore\tdepth\tms");
+            long n = a.analyze(in, r -> {
+                synchronized (out) {
+                    out.println(r);
+                    out.flush();
+                }
+            });
+            System.err.printf("%d positions, %.1f positions/s%n", n, n / ((System.nanoTime() - start) / 1e9));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Run the analysis service until the process is ended
+    static void serve(int port, int engines, int queue, long timeout, String settings) {
+        Connect4Service service = new Connect4Service(Connect4EngineSettings.parse(settings), engines, queue, timeout);
+        try {
+            service.start(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("Connect4 service: http://localhost:" + service.getPort() + "/bestmove?moves=3345&time=100&depth=12, "
+                + engines + " engines, queue " + queue + ", timeout " + timeout + "ms");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> service.stop(1)));
+    }
+
+    // Load the analysis service on localhost
+    static void loadTest(int port, int clients, int requests, long time) {
+        try {
+            new Connect4LoadTest("http://localhost:" + port, time).run(clients, requests, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Search performance per board size: empty board and the center column opening with a time budget
+    static void sizes(long time) {
+        String[] sizes = { "7x6", "6x7", "7x7", "8x6", "8x7", "9x6", "9x7", "10x5" };
+        System.out.println(" size  opening  depth      nodes       nps");
+        for (String size : sizes) {
+            Connect4Geometry g = Connect4Geometry.parse(size);
+            String center = Integer.toString(g.colOrder[0], Character.MAX_RADIX);
+            for (String p : new String[] { "", center + center }) {
+                Connect4Engine e = new Connect4Engine(new Connect4EngineSettings().setTimeBudget(time));
+                Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(g, p));
+                e.close();
+                System.out.printf("%5s  %7s  %5d %10d %9d%n", size, p.isEmpty() ? "-" : p, r.depth, r.nodes, r.stats.getNodesPerSecond());
+            }
+        }
+    }
+
+    // Search the position set at fixed depth with the move ordering heuristics switched on one by one, scores must
+    // not change
+    static void ordering(int depth) {
+        String[] configs = { "threats=false", "threats=true", "threats=false,killers=true", "threats=false,history=true",
+                "threats=true,killers=true,history=true" };
+        System.out.println("      nodes      time  scores  settings");
+        for (String config : configs) {
+            long time = 0, nodes = 0, scores = 0;
+            for (String p : POSITIONS) {
+                Connect4Engine e = new Connect4Engine(Connect4EngineSettings.parse(config).setMaxDepth(depth)
+                        .setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT).setSolverThreshold(0));
+                Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(p));
+                e.close();
+                time += r.time;
+                nodes += r.nodes;
+                scores += r.score;
+            }
+            System.out.printf("%11d %7dms %7d  %s%n", nodes, time / 1000000, scores, config);
+        }
+    }
+
+    // Search the bench suite at fixed depth on one thread, a new engine per position: the total nodes are a signature
+    // of the search (any change of minmax, move ordering or evaluation changes them), the nps its speed
+    static void bench(int depth) {
+        long time = 0, nodes = 0;
+        System.out.println("position                          col  score       nodes      time");
+        for (String p : BENCH) {
+            Connect4Engine e = new Connect4Engine(new Connect4EngineSettings().setThreads(1).setMaxDepth(depth)
+                    .setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT).setSolverThreshold(0));
+            Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(p));
+            e.close();
+            time += r.time;
+            nodes += r.nodes;
+            System.out.printf("%-32s %4d %6d %11d %7dms%n", p.isEmpty() ? "-" : p, r.col, r.score, r.nodes, r.time / 1000000);
+        }
+        System.out.printf("Depth %d, %d positions: %d nodes (signature), %dms, %d nps%n", depth, BENCH.length, nodes, time / 1000000,
+                nodes * 1000000000L / Math.max(1, time));
+    }
+
+    // Search the position set and random positions at fixed depth with every search mode, count the best moves and
+    // scores equal to alpha/beta
+    static void modes(int depth, int randomPositions) {
+        Random rnd = new Random(1);
+        String[] positions = Arrays.copyOf(POSITIONS, POSITIONS.length + randomPositions);
+        for (int i = POSITIONS.length; i < positions.length; i++) positions[i] = randomPosition(rnd, 4 + rnd.nextInt(13));
+        Connect4EngineSettings.SearchMode[] modes = Connect4EngineSettings.SearchMode.values();
+        int[][] results = new int[positions.length][2];
+        System.out.println("      nodes      time  same move  same score  mode");
+        for (Connect4EngineSettings.SearchMode mode : modes) {
+            long time = 0, nodes = 0;
+            int moves = 0, scores = 0;
+            for (int i = 0; i < positions.length; i++) {
+                Connect4Engine e = new Connect4Engine(new Connect4EngineSettings().setSearchMode(mode).setMaxDepth(depth)
+                        .setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT).setSolverThreshold(0));
+                Connect4SearchResult r = e.search(Connect4BitBoard.ofMoves(positions[i]));
+                e.close();
+                time += r.time;
+                nodes += r.nodes;
+                if (mode == modes[0]) results[i] = new int[] { r.col, r.score };
+                if (r.col == results[i][0]) moves++;
+                if (r.score == results[i][1]) scores++;
+            }
+            System.out.printf("%11d %7dms %6d/%d %8d/%d  %s%n", nodes, time / 1000000, moves, positions.length, scores, positions.length,
+                    mode.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    // Cost of the multi-PV analysis of the position set at fixed depth: one search for the best move, multi-PV of all
+    // and of the top columns, and one independent search per column (exact scores like multi-PV)
+    static void multiPv(int depth, int top, int threads) {
+        Connect4EngineSettings settings = new Connect4EngineSettings().setMaxDepth(depth).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT)
+                .setSolverThreshold(0).setThreads(threads);
+        Connect4EngineSettings childSettings = Connect4EngineSettings.parse(settings.toString()).setMaxDepth(depth - 1);
+        long[] time = new long[4], nodes = new long[4];
+        int sameBest = 0, sameScores = 0, columns = 0;
+        for (String p : POSITIONS) {
+            Connect4BitBoard b = Connect4BitBoard.ofMoves(p);
+            Connect4Engine e = new Connect4Engine(settings);
+            Connect4SearchResult best = e.search(b);
+            e.close();
+            time[0] += best.time;
+            nodes[0] += best.nodes;
+            Connect4SearchResult[][] multi = new Connect4SearchResult[2][];
+            for (int i = 0; i < 2; i++) {
+                e = new Connect4Engine(settings);
+                multi[i] = e.analyze(b, new AtomicBoolean(), Connect4EngineSettings.NO_TIME_LIMIT, depth, i == 0 ? 0 : top);
+                e.close();
+                time[1 + i] += multi[i][0].time;
+                nodes[1 + i] += multi[i][0].nodes;
+            }
+            if (multi[0][0].score == best.score) sameBest++;
+            for (Connect4SearchResult r : multi[0]) {
+                Connect4BitBoard child = b.copy();
+                child.put_(r.col);
+                int score = Connect4Search.WIN_SCORE;
+                if (!child.won()) {
+                    e = new Connect4Engine(childSettings);
+                    Connect4SearchResult c = e.search(child);
+                    e.close();
+                    time[3] += c.time;
+                    nodes[3] += c.nodes;
+                    score = -c.score;
+                }
+                columns++;
+                if (score == r.score) sameScores++;
+            }
+        }
+        String[] names = { "best move search", "multi-PV, all columns", "multi-PV, top " + top, "search per column" };
+        System.out.println("depth " + depth + ", " + threads + " threads, " + POSITIONS.length + " positions");
+        System.out.println("      nodes      time  relative  search");
+        for (int i = 0; i < 4; i++) {
+            System.out.printf("%11d %7dms %8.2fx  %s%n", nodes[i], time[i] / 1000000, (double) nodes[i] / nodes[0], names[i]);
+        }
+        System.out.println("Same best score " + sameBest + "/" + POSITIONS.length + ", same column scores " + sameScores + "/" + columns);
+    }
+
+    // Random moves which do not decide the game
+    static String randomPosition(Random rnd, int plies) {
+        while (true) {
+            Connect4BitBoard b = new Connect4BitBoard();
+            StringBuilder s = new StringBuilder();
+            while (b.getTotPieces() < plies && !b.won()) {
+                int c = rnd.nextInt(b.getGeometry().cols);
+                if (b.canPlay(c)) {
+                    b.put_(c);
+                    s.append(c);
+                }
+            }
+            if (!b.won() && Connect4Search.getBoardScore(b) != -Connect4Search.WIN_SCORE) return s.toString();
+        }
+    }
+
+    // Play engine A against engine B, optionally record the games
+    static void tournament(String[] args) {
+        Connect4Tournament t = new Connect4Tournament(Connect4EngineSettings.parse(args[3]), Connect4EngineSettings.parse(args[4]), intArg(args, 5, 4));
+        try (Connect4RecordWriter w = args.length > 7 ? new Connect4RecordWriter(args[7]) : null) {
+            t.setRecordWriter(w);
+            t.run(intArg(args, 1, 100), intArg(args, 2, 1), longArg(args, 6, 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Append random games to a record file, then replay all games of the file and report the read speed
+    static void records(String file, int randomGames) {
+        try {
+            if (randomGames > 0) {
+                long start = System.nanoTime();
+                Random rnd = new Random(1);
+                Connect4Geometry g = Connect4Geometry.STANDARD;
+                int[] moves = new int[g.cells], times = new int[g.cells];
+                try (Connect4RecordWriter w = new Connect4RecordWriter(file)) {
+                    for (int i = 0; i < randomGames; i++) {
+                        Connect4BitBoard b = new Connect4BitBoard(g);
+                        while (!b.won() && b.getTotPieces() < g.cells) {
+                            int c = rnd.nextInt(g.cols);
+                            if (!b.canPlay(c)) continue;
+                            times[b.getTotPieces()] = rnd.nextInt(2000);
+                            moves[b.getTotPieces()] = c;
+                            b.put_(c);
+                        }
+                        int result = !b.won() ? Connect4RecordWriter.DRAW
+                                : b.getToMove() > 0 ? Connect4RecordWriter.YELLOW_WINS : Connect4RecordWriter.RED_WINS;
+                        w.write(g, result, i % 2 == 0 ? "time=100" : null, "time=100", moves, times, b.getTotPieces());
+                    }
+                }
+                System.out.printf("Appended %d games in %dms%n", randomGames, (System.nanoTime() - start) / 1000000);
+            }
+            long start = System.nanoTime();
+            long sum = 0, bytes;
+            try (Connect4RecordReader r = new Connect4RecordReader(file)) { // Decode only
+                while (r.next()) {
+                    for (int i = r.getPlies() - 1; i >= 0; i--) sum += r.getMove(i) + r.getTime(i);
+                }
+                bytes = r.getPosition();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Read %d bytes in %dms: %.0f MB/s (checksum %d)%n", bytes, elapsed / 1000000, bytes / (elapsed / 1e9) / 1e6, sum);
+            start = System.nanoTime();
+            long games = 0, plies = 0, time = 0;
+            long[] results = new long[4];
+            Connect4BitBoard b = null;
+            try (Connect4RecordReader r = new Connect4RecordReader(file)) {
+                while (r.next()) { // Replay every game on one board, then take the moves back
+                    if (b == null || b.getGeometry().cols != r.getCols() || b.getGeometry().rows != r.getRows()) {
+                        b = new Connect4BitBoard(Connect4Geometry.of(r.getCols(), r.getRows()));
+                    }
+                    int n = r.getPlies();
+                    for (int i = 0; i < n; i++) {
+                        int c = r.getMove(i);
+                        if (c >= r.getCols() || !b.canPlay(c)) throw new IllegalStateException("Illegal move in game " + (games + 1));
+                        b.put_(c);
+                        time += r.getTime(i);
+                    }
+                    for (int i = n - 1; i >= 0; i--) b.remove_(r.getMove(i));
+                    results[r.getResult()]++;
+                    plies += n;
+                    games++;
+                }
+                elapsed = System.nanoTime() - start;
+                System.out.printf("%d games, %.1f plies/game, %.0fms/move: red %d, yellow %d, draws %d, unfinished %d%n", games,
+                        (double) plies / Math.max(1, games), (double) time / Math.max(1, plies), results[Connect4RecordWriter.RED_WINS],
+                        results[Connect4RecordWriter.YELLOW_WINS], results[Connect4RecordWriter.DRAW], results[Connect4RecordWriter.UNFINISHED]);
+                System.out.printf("%.1f bytes/game, read and replayed in %dms: %.0f games/s, %.0f MB/s%n", (double) r.getPosition() / Math.max(1, games),
+                        elapsed / 1000000, games / (elapsed / 1e9), r.getPosition() / (elapsed / 1e9) / 1e6);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Generate an opening book and check the lookup time
+    static void book(String file, int maxPly, int depth, int threads, Connect4Geometry g) {
+        long start = System.nanoTime();
+        try {
+            Connect4Book.generate(file, g, maxPly, depth, threads);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Connect4Book book = Connect4Book.open(file);
+        System.out.println("Book " + file + ": " + book.getCount() + " positions up to ply " + maxPly + ", depth " + depth
+                + ", " + (System.nanoTime() - start) / 1000000 + "ms");
+        String center = Integer.toString(g.colOrder[0], Character.MAX_RADIX);
+        Connect4BitBoard b = Connect4BitBoard.ofMoves(g, center + center);
+        int n = 1000000, hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) if (book.probe(b) >= 0) hits++;
+        System.out.println("Lookup: " + (System.nanoTime() - start) / n + "ns, " + hits + " hits");
+    }
+
+    // Generate an endgame tablebase of the positions reachable from games of a shallow engine after random openings,
+    // taken spread plies before maxEmpty empty fields, and compare the exact results of these positions by the search
+    // with the tablebase and by the solver
+    static void tablebase(String file, int maxEmpty, int games, int spread, int threads, Connect4Geometry g) {
+        g.checkPositionKeys();
+        long start = System.nanoTime();
+        Random rnd = new Random(1);
+        Connect4Engine player = new Connect4Engine(new Connect4EngineSettings().setMaxDepth(6).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT)
+                .setSolverThreshold(0).setTtSizeMb(1));
+        List<String> roots = new ArrayList<>();
+        int rootPieces = Math.max(0, g.cells - maxEmpty - spread);
+        for (int i = 0; i < 100 * games && roots.size() < games; i++) {
+            Connect4BitBoard b = new Connect4BitBoard(g);
+            StringBuilder line = new StringBuilder();
+            int opening = 2 + rnd.nextInt(7);
+            while (b.getTotPieces() < rootPieces && !b.won()) {
+                int c = b.getTotPieces() < opening ? rnd.nextInt(g.cols) : player.search(b).col;
+                if (!b.canPlay(c)) continue;
+                b.put_(c);
+                line.append(Character.forDigit(c, Character.MAX_RADIX));
+            }
+            if (!b.won() && g.winningPositions(b.getOwn(), b.getAll()) == 0) roots.add(line.toString()); // Not decided by the next move
+        }
+        player.close();
+        System.out.println(roots.size() + " positions with " + (g.cells - rootPieces) + " empty fields, " + (System.nanoTime() - start) / 1000000 + "ms");
+        start = System.nanoTime();
+        try {
+            Connect4Tablebase.generate(file, g, maxEmpty, roots, threads);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Connect4Tablebase tb = Connect4Tablebase.open(file);
+        long bytes = new java.io.File(file).length();
+        System.out.printf("Tablebase %s: %d positions with at most %d empty fields, %.1fMB (%.2f bytes per position), %dms%n", file,
+                tb.getCount(), maxEmpty, bytes / 1e6, (double) bytes / tb.getCount(), (System.nanoTime() - start) / 1000000);
+
+        // Probe the positions of the table range of a random continuation of every root
+        List<Connect4BitBoard> probes = new ArrayList<>();
+        for (String root : roots) {
+            Connect4BitBoard b = Connect4BitBoard.ofMoves(g, root);
+            while (!b.won() && b.getTotPieces() < g.cells) {
+                if (g.cells - b.getTotPieces() <= maxEmpty) probes.add(b.copy());
+                int c = rnd.nextInt(g.cols);
+                if (b.canPlay(c)) b.put_(c);
+            }
+        }
+        int hits = 0, n = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) for (Connect4BitBoard b : probes) {
+            if (tb.probe(b) != Connect4Tablebase.UNKNOWN) hits++;
+            n++;
+        }
+        System.out.println("Probe: " + (System.nanoTime() - start) / Math.max(1, n) + "ns, " + hits + " of " + n + " found");
+
+        // Exact results of the roots: search with the tablebase to the end of the game, solver
+        Connect4Engine search = new Connect4Engine(Connect4EngineSettings.parse("solver=0,tablebase=" + file).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT));
+        Connect4Engine solver = new Connect4Engine(new Connect4EngineSettings().setSolverThreshold(g.cells).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT));
+        long searchTime = 0, solverTime = 0, searchNodes = 0, solverNodes = 0;
+        int same = 0;
+        for (String root : roots) {
+            Connect4BitBoard b = Connect4BitBoard.ofMoves(g, root);
+            Connect4SearchResult r1 = search.search(b), r2 = solver.search(b);
+            searchTime += r1.time;
+            searchNodes += r1.nodes;
+            solverTime += r2.time;
+            solverNodes += r2.nodes;
+            if (r1.score == r2.score) same++;
+        }
+        search.close();
+        solver.close();
+        System.out.printf("Search with tablebase: %dms, %d nodes; solver: %dms, %d nodes; same result %d of %d%n", searchTime / 1000000,
+                searchNodes, solverTime / 1000000, solverNodes, same, roots.size());
+    }
+
+    // Play random games with random take backs and compare the incremental score with the full scan of the Line objects
+    // (and the bit mask scan) after every move
+    static void checkScore(int games, long seed, Connect4Geometry geometry) {
+        Random rnd = new Random(seed);
+        long positions = 0;
+        for (int g = 0; g < games; g++) {
+            Connect4BitBoard b = new Connect4BitBoard(geometry);
+            int[] moves = new int[geometry.cells];
+            while (b.getTotPieces() < geometry.cells && !b.won()) {
+                int c = rnd.nextInt(geometry.cols);
+                if (!b.canPlay(c)) continue;
+                b.put_(c);
+                moves[b.getTotPieces() - 1] = c;
+                b.checkScore();
+                positions++;
+                if (rnd.nextInt(8) == 0) { // Take back some moves
+                    for (int n = rnd.nextInt(3); n > 0 && b.getTotPieces() > 0; n--) {
+                        b.remove_(moves[b.getTotPieces() - 1]);
+                        b.checkScore();
+                        positions++;
+                    }
+                }
+            }
+        }
+        System.out.println("Score check ok: " + geometry + ", " + games + " games, " + positions + " positions");
+    }
+}
@@ -0,0 +1,153 @@
+package connect4game;
+// Headless computer vs computer tournament: games run concurrently in a thread pool, every random opening is played
+// twice with swapped colors, every pool thread reuses one engine per side (cleared between games)
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+final class Connect4Tournament {
+
+    private final Connect4EngineSettings settingsA, settingsB;
+    private final int openingPlies;
+    private Connect4RecordWriter recordWriter; // Games are recorded if not null
+
+    // Results seen from engine A
+    private int wins, draws, losses;
+    private final long[] moves = new long[2], nodes = new long[2], time = new long[2]; // Per engine A, B
+    private final long[] ponderHits = new long[2], ponderMisses = new long[2];
+    private int failed; // Games which ended with an exception, not counted
+    private Throwable firstFailure;
+
+    // Engines A and B of the pool threads
+    private final ThreadLocal<Connect4Engine[]> engines = ThreadLocal.withInitial(this::newEngines);
+    private final List<Connect4Engine> allEngines = new ArrayList<>();
+
+    Connect4Tournament(Connect4EngineSettings settingsA, Connect4EngineSettings settingsB, int openingPlies) {
+        this.settingsA = settingsA;
+        this.settingsB = settingsB;
+        this.openingPlies = openingPlies;
+    }
+
+    void setRecordWriter(Connect4RecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    // Play games (rounded up to pairs) with the given number of threads
+    void run(int games, int threads, long seed) throws InterruptedException {
+        Random rnd = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < (games + 1) / 2; i++) {
+            String opening = randomOpening(rnd);
+            results.add(pool.submit(() -> play(opening, true)));
+            results.add(pool.submit(() -> play(opening, false)));
+        }
+        pool.shutdown();
+        pool.awaitTermination(365, TimeUnit.DAYS);
+        long elapsed = System.nanoTime() - start;
+        for (Future<?> f : results) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                if (failed++ == 0) firstFailure = e.getCause();
+            }
+        }
+        synchronized (allEngines) {
+            for (Connect4Engine e : allEngines) e.close();
+        }
+        report(elapsed);
+    }
+
+    private Connect4Engine[] newEngines() {
+        Connect4Engine[] e = { new Connect4Engine(settingsA), new Connect4Engine(settingsB) };
+        synchronized (allEngines) {
+            allEngines.add(e[0]);
+            allEngines.add(e[1]);
+        }
+        return e;
+    }
+
+    // Random moves which do not decide the game yet
+    private String randomOpening(Random rnd) {
+        while (true) {
+            Connect4BitBoard b = new Connect4BitBoard();
+            StringBuilder s = new StringBuilder();
+            while (b.getTotPieces() < openingPlies && !b.won()) {
+                int c = rnd.nextInt(b.getGeometry().cols);
+                if (b.canPlay(c)) {
+                    b.put_(c);
+                    s.append(c);
+                }
+            }
+            if (!b.won()) return s.toString();
+        }
+    }
+
+    private void play(String opening, boolean aIsRed) {
+        Connect4Engine[] e = engines.get();
+        e[0].clear(); // Games are independent, no results of the previous game
+        e[1].clear();
+        Connect4Game game = new Connect4Game(Connect4Geometry.STANDARD, aIsRed ? e[0] : e[1], aIsRed ? e[1] : e[0],
+                (piece, isNew, marker, col, row) -> {}, s -> {});
+        game.setVerbose(false);
+        game.setRecordWriter(recordWriter);
+        for (char c : opening.toCharArray()) game.forceMove(c - '0');
+        while (!game.isOver()) {
+            if (!game.computerMove()) throw new IllegalStateException("No move in game " + opening);
+        }
+        Connect4Player a = aIsRed ? game.getPlayer1() : game.getPlayer2();
+        Connect4Player b = aIsRed ? game.getPlayer2() : game.getPlayer1();
+        Connect4Player winner = game.getWinner();
+        synchronized (this) {
+            if (winner == a) wins++;
+            else if (winner == b) losses++;
+            else draws++;
+            add(0, (Connect4AiPlayer) a);
+            add(1, (Connect4AiPlayer) b);
+        }
+    }
+
+    private void add(int i, Connect4AiPlayer p) {
+        moves[i] += p.getMoves();
+        nodes[i] += p.getNodes();
+        time[i] += p.getTime();
+        ponderHits[i] += p.getPonderHits();
+        ponderMisses[i] += p.getPonderMisses();
+    }
+
+    private synchronized void report(long elapsed) {
+        int n = wins + draws + losses;
+        System.out.println("A: " + settingsA);
+        System.out.println("B: " + settingsB);
+        if (failed > 0) System.out.println("FAILED: " + failed + " games not counted, first error: " + firstFailure);
+        if (n == 0) return; // No finished game
+        double score = (wins + 0.5 * draws) / n;
+        // Standard error of the mean score per game, 95% confidence interval
+        double var = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / n;
+        double margin = 1.96 * Math.sqrt(var / n);
+        System.out.printf("Games %d: A wins %d, draws %d, losses %d, score %.1f%%%n", n, wins, draws, losses, 100 * score);
+        System.out.printf("Elo difference A-B: %.1f (%.1f ... %.1f)%n", elo(score, n), elo(score - margin, n), elo(score + margin, n));
+        for (int i = 0; i < 2; i++) {
+            System.out.printf("%s: %.1fms/move, %d nodes/move", i == 0 ? "A" : "B",
+                    time[i] / 1e6 / Math.max(1, moves[i]), nodes[i] / Math.max(1, moves[i]));
+            long pondered = ponderHits[i] + ponderMisses[i];
+            if (pondered > 0) System.out.printf(", ponder hits %.1f%%", 100.0 * ponderHits[i] / pondered);
+            System.out.println();
+        }
+        System.out.printf("%.2f games/s%n", n / (elapsed / 1e9));
+    }
+
+    // Elo difference of a score of n games, a score of 0 or 1 counts as half a game from the end (finite bounds)
+    private static double elo(double score, int n) {
+        double min = 0.5 / n;
+        score = Math.max(min, Math.min(1 - min, score));
+        return -400 * Math.log10(1 / score - 1);
+    }
+}
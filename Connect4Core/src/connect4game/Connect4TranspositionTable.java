@@ -0,0 +1,87 @@
+package connect4game;
+// Transposition table, a fixed size hash table of search results stored in primitive arrays
+
+import java.util.Arrays;
+
+final class Connect4TranspositionTable {
+
+    // Bound type of a stored score
+    final static int EXACT = 0;
+    final static int LOWER = 1; // Score is a lower bound (beta cutoff)
+    final static int UPPER = 2; // Score is an upper bound (all moves failed low)
+
+    final static long NONE = 0; // Probe result if the position is not stored
+
+    private final static int ENTRY_BYTES = 16; // key + data
+    private final static int BUCKET_SIZE = 2; // Slot 0: depth preferred, slot 1: always replace
+
+    // Lock free for parallel workers: keys holds key ^ data, so an entry torn by concurrent writes does not match any key
+    private final long[] keys;
+    private final long[] data; // Packed entry: score (32 bit), depth (8 bit), bound (2 bit), column+1 (4 bit), valid (1 bit)
+    private final int bucketMask;
+
+    Connect4TranspositionTable(int sizeMb) {
+        long entries = Math.max(BUCKET_SIZE, ((long) sizeMb << 20) / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(1 << 30, entries / BUCKET_SIZE));
+        keys = new long[buckets * BUCKET_SIZE];
+        data = new long[buckets * BUCKET_SIZE];
+        bucketMask = buckets - 1;
+    }
+
+    private int index(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+
+    // Get the packed entry of a position or NONE
+    long probe(long key) {
+        int i = index(key) * BUCKET_SIZE;
+        for (int j = i; j < i + BUCKET_SIZE; j++) {
+            long d = data[j];
+            if (d != NONE && (keys[j] ^ d) == key) return d;
+        }
+        return NONE;
+    }
+
+    // Store a search result, depth is the remaining search depth, col is the best column or -1
+    void store(long key, int depth, int bound, int score, int col) {
+        long d = pack(depth, bound, score, col);
+        int i = index(key) * BUCKET_SIZE;
+        long d0 = data[i], k0 = keys[i] ^ d0;
+        if (d0 == NONE || k0 == key || depth >= getDepth(d0)) {
+            if (d0 != NONE && k0 != key) { // Keep the old deep entry in the always replace slot
+                keys[i + 1] = k0 ^ d0;
+                data[i + 1] = d0;
+            }
+            keys[i] = key ^ d;
+            data[i] = d;
+        } else {
+            keys[i + 1] = key ^ d;
+            data[i + 1] = d;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, NONE);
+    }
+
+    private static long pack(int depth, int bound, int score, int col) {
+        return (score & 0xFFFFFFFFL) | ((long) (depth & 0xFF) << 32) | ((long) bound << 40) | ((long) (col + 1) << 42) | (1L << 46);
+    }
+
+    static int getScore(long d) {
+        return (int) d;
+    }
+
+    static int getDepth(long d) {
+        return (int) (d >>> 32) & 0xFF;
+    }
+
+    static int getBound(long d) {
+        return (int) (d >>> 40) & 0x3;
+    }
+
+    static int getCol(long d) {
+        return (int) ((d >>> 42) & 0xF) - 1;
+    }
+}
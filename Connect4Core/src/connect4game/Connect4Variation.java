@@ -0,0 +1,90 @@
+package connect4game;
+// Node of the variation tree of a game: the position after a move, the moves tried from it (variations) and the
+// engine analysis of the position. Moving along the tree reuses the nodes, only a new variation allocates a node.
+
+import java.util.Arrays;
+
+final class Connect4Variation {
+
+    private final static Connect4Variation[] NONE = new Connect4Variation[0];
+
+    final Connect4Variation parent; // null for the start position
+    final int col; // Move to this position, -1 for the start position
+    final int ply; // Pieces on the board
+    int time; // ms of the move
+    Connect4Variation last; // Variation played last from this position, followed by redo, null if none
+    volatile Analysis analysis; // Engine search of this position, null if not searched
+    volatile int[] hints; // Multi-PV scores per column (see Connect4Game.hintsAsync), null if not analysed
+
+    // Search result with the settings of the engine which produced it (depth limit and time included), a move is
+    // reused only by a player with the same settings
+    static final class Analysis {
+        final String settings;
+        final Connect4SearchResult result;
+
+        Analysis(Connect4EngineSettings settings, Connect4SearchResult result) {
+            this.settings = settings.toString();
+            this.result = result;
+        }
+
+        boolean matches(Connect4EngineSettings settings) {
+            return settings != null && this.settings.equals(settings.toString());
+        }
+    }
+
+    private Connect4Variation[] variations = NONE;
+    private int count;
+
+    Connect4Variation() {
+        this(null, -1);
+    }
+
+    private Connect4Variation(Connect4Variation parent, int col) {
+        this.parent = parent;
+        this.col = col;
+        this.ply = parent != null ? parent.ply + 1 : 0;
+    }
+
+    // The variation of a move, null if the move was not played from this position
+    Connect4Variation getVariation(int col) {
+        for (int i = 0; i < count; i++) if (variations[i].col == col) return variations[i];
+        return null;
+    }
+
+    // The variation of a move, a new one if the move was not played from this position yet
+    Connect4Variation play(int col) {
+        Connect4Variation v = getVariation(col);
+        if (v == null) {
+            if (count == variations.length) variations = Arrays.copyOf(variations, Math.max(2, 2 * count));
+            v = variations[count++] = new Connect4Variation(this, col);
+        }
+        last = v;
+        return v;
+    }
+
+    // Columns of the variations in the order they were first played
+    int[] getVariationCols() {
+        int[] cols = new int[count];
+        for (int i = 0; i < count; i++) cols[i] = variations[i].col;
+        return cols;
+    }
+
+    // Last common position of two nodes of the same tree
+    Connect4Variation commonAncestor(Connect4Variation v) {
+        Connect4Variation a = this;
+        while (a.ply > v.ply) a = a.parent;
+        while (v.ply > a.ply) v = v.parent;
+        while (a != v) {
+            a = a.parent;
+            v = v.parent;
+        }
+        return a;
+    }
+
+    // Moves from the start position to this position, columns from 10 on are letters (a = 10)
+    String getMoves() {
+        char[] moves = new char[ply];
+        for (Connect4Variation v = this; v.parent != null; v = v.parent) moves[v.ply - 1] = Character.forDigit(v.col, Character.MAX_RADIX);
+        return new String(moves);
+    }
+}
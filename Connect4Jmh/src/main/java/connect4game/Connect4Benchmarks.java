@@ -0,0 +1,121 @@
+package connect4game;
+// JMH benchmarks of the board and search primitives
+// Build: mvn package, run: java -jar target/benchmarks.jar -prof gc
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Connect4Benchmarks {
+
+    // Standard positions (move sequences), see Connect4Tools.POSITIONS
+    @Param({ "", "334", "33453333", "3345333312222245", "4333336304441" })
+    public String position;
+
+    private Connect4Board board;
+    private Connect4BitBoard bits;
+    private int col; // A playable column
+    private Connect4Board.Piece piece; // The player to move
+    private Connect4Engine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new Connect4Board();
+        for (char ch : position.toCharArray()) {
+            board.putPiece(ch - '0', Connect4Board.Piece.ofFieldValue(board.getBitBoard().getToMove()));
+        }
+        bits = board.getBitBoard().copy();
+        piece = Connect4Board.Piece.ofFieldValue(bits.getToMove());
+        col = 3;
+        while (!bits.canPlay(col)) col = (col + 1) % bits.getGeometry().cols;
+        engine = new Connect4Engine(new Connect4EngineSettings().setMaxDepth(8).setTimeBudget(Connect4EngineSettings.NO_TIME_LIMIT)
+                .setTtSizeMb(4).setSolverThreshold(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Connect4BitBoard bitBoardPutRemove() {
+        bits.put_(col);
+        bits.remove_(col);
+        return bits;
+    }
+
+    @Benchmark
+    public Connect4Board boardPutRemove() {
+        board.put_(col, piece.getFieldValue());
+        board.remove_(col);
+        return board;
+    }
+
+    @Benchmark
+    public boolean putWonRemove() { // Search step: the line counters of put_ tell a win
+        bits.put_(col);
+        boolean won = bits.won();
+        bits.remove_(col);
+        return won;
+    }
+
+    @Benchmark
+    public boolean isWin() { // Bit mask test of the last mover, the check mode compares it with the line counters
+        return bits.getGeometry().isWin(bits.getOwn() ^ bits.getAll());
+    }
+
+    @Benchmark
+    public int lineValue() {
+        int s = 0;
+        for (Connect4Board.Line l : board.getLines()) s += l.value();
+        return s;
+    }
+
+    @Benchmark
+    public int lineCount() {
+        int s = 0;
+        for (Connect4Board.Line l : board.getLines()) s += l.count();
+        return s;
+    }
+
+    @Benchmark
+    public int boardScore() { // Incremental evaluation
+        return Connect4Search.getBoardScore(bits);
+    }
+
+    @Benchmark
+    public int threatEval() { // Horizon evaluation with threats by row parity
+        return Connect4Evaluator.eval(bits);
+    }
+
+    @Benchmark
+    public int boardScan() { // Full line scan
+        return bits.scan();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int minmaxDepth8() {
+        engine.clear();
+        return engine.search(bits).score;
+    }
+}